@@ -0,0 +1,47 @@
+package com.example.springredditclone.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  /**
+   * Pool for the read replica, bound from replica.datasource.*. Without replica.datasource.jdbc-url every
+   * transaction uses the primary.
+   * */
+  @Bean
+  @ConditionalOnProperty("replica.datasource.jdbc-url")
+  @ConfigurationProperties("replica.datasource")
+  public HikariDataSource replicaDataSource() {
+    return new HikariDataSource();
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                               @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+                               ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+    ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica.getIfAvailable(() -> primary),
+      readYourWritesTracker, meterRegistry);
+    routing.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(new InstrumentedDataSource(routing));
+  }
+}
@@ -0,0 +1,154 @@
+package com.example.springredditclone.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps connections, statements and result sets in JDK proxies that report every execution, the rows it read or
+ * changed and the time it took to the current request's SqlStatistics. Without a request in progress the proxies
+ * only delegate.
+ * */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+  public InstrumentedDataSource(DataSource targetDataSource) {
+    super(targetDataSource);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection()));
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection(username, password)));
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private static class ConnectionHandler implements InvocationHandler {
+    private final Connection target;
+
+    ConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = InstrumentedDataSource.invoke(target, method, args);
+      switch (method.getName()) {
+        case "createStatement":
+          return proxy(Statement.class, new StatementHandler((Statement) result, null));
+        case "prepareStatement":
+          return proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+        case "prepareCall":
+          return proxy(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+        default:
+          return result;
+      }
+    }
+  }
+
+  private static class StatementHandler implements InvocationHandler {
+    private final Statement target;
+    // Null for plain statements, which are given their SQL on every execute
+    private final String preparedSql;
+
+    StatementHandler(Statement target, String preparedSql) {
+      this.target = target;
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      SqlStatistics statistics = SqlStatistics.current();
+      if (statistics == null) {
+        return InstrumentedDataSource.invoke(target, method, args);
+      }
+      if (method.getName().equals("getResultSet")) {
+        return wrap(InstrumentedDataSource.invoke(target, method, args), statistics);
+      }
+      if (!method.getName().startsWith("execute")) {
+        return InstrumentedDataSource.invoke(target, method, args);
+      }
+
+      long start = System.nanoTime();
+      Object result = InstrumentedDataSource.invoke(target, method, args);
+      long elapsed = System.nanoTime() - start;
+      statistics.recordExecution(sql(args), elapsed, affectedRows(result));
+      return wrap(result, statistics);
+    }
+
+    private String sql(Object[] args) {
+      if (args != null && args.length > 0 && args[0] instanceof String) {
+        return (String) args[0];
+      }
+      return preparedSql != null ? preparedSql : "batch";
+    }
+
+    // Rows read are counted as the result set is consumed, see ResultSetHandler
+    private static long affectedRows(Object result) {
+      if (result instanceof Number) {
+        return Math.max(((Number) result).longValue(), 0);
+      }
+      long rows = 0;
+      if (result instanceof int[]) {
+        for (int count : (int[]) result) {
+          rows += Math.max(count, 0);
+        }
+      } else if (result instanceof long[]) {
+        for (long count : (long[]) result) {
+          rows += Math.max(count, 0);
+        }
+      }
+      return rows;
+    }
+
+    private static Object wrap(Object result, SqlStatistics statistics) {
+      if (result instanceof ResultSet) {
+        return proxy(ResultSet.class, new ResultSetHandler((ResultSet) result, statistics));
+      }
+      return result;
+    }
+  }
+
+  private static class ResultSetHandler implements InvocationHandler {
+    private final ResultSet target;
+    private final SqlStatistics statistics;
+
+    ResultSetHandler(ResultSet target, SqlStatistics statistics) {
+      this.target = target;
+      this.statistics = statistics;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = InstrumentedDataSource.invoke(target, method, args);
+      if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+        statistics.recordRow();
+      }
+      return result;
+    }
+  }
+}
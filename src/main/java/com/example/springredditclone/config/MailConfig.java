@@ -0,0 +1,25 @@
+package com.example.springredditclone.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class MailConfig {
+
+  /**
+   * Bounded pool that sends outbox batches. MailDispatcher stops claiming work while the queue is full, so a slow
+   * SMTP server backs up in the outbox table instead of in memory.
+   * */
+  @Bean
+  public ThreadPoolTaskExecutor mailExecutor(@Value("${mail.outbox.workers:2}") int workers) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(workers);
+    executor.setMaxPoolSize(workers);
+    executor.setQueueCapacity(workers);
+    executor.setThreadNamePrefix("mail-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    return executor;
+  }
+}
@@ -0,0 +1,25 @@
+package com.example.springredditclone.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class PasswordHashingConfig {
+
+  /**
+   * One thread per core runs BCrypt, with a short queue in front. Once both are full, extra logins and signups are
+   * rejected straight away instead of tying up request threads.
+   * */
+  @Bean
+  public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${auth.password-hashing.queue:16}") int queue) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queue);
+    executor.setThreadNamePrefix("bcrypt-");
+    return executor;
+  }
+}
@@ -0,0 +1,33 @@
+package com.example.springredditclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token bucket limits for rate-limit.routes[n]. The first route whose pattern and method match a request applies,
+ * and each client (user id, or address when anonymous) gets its own bucket per route.
+ * */
+@Data
+@Component
+@ConfigurationProperties("rate-limit")
+public class RateLimitProperties {
+  private List<Route> routes = new ArrayList<>();
+  /** Buckets untouched for this long are dropped; a returning client simply starts with a full bucket. */
+  private long idleEviction = 600000;
+
+  @Data
+  public static class Route {
+    /** Ant-style path pattern, e.g. /api/votes/** */
+    private String pattern;
+    /** HTTP methods the limit applies to; empty means all of them. */
+    private List<String> methods = new ArrayList<>();
+    /** Largest burst a client can send. */
+    private int capacity;
+    /** Tokens added back per second. */
+    private double refillPerSecond;
+  }
+}
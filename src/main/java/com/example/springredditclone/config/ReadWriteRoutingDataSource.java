@@ -0,0 +1,199 @@
+package com.example.springredditclone.config;
+
+import com.example.springredditclone.security.UserPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. It has to sit behind a
+ * LazyConnectionDataSourceProxy: the transaction manager asks for a connection before it marks the transaction
+ * read-only, and the proxy defers the real lookup to the first statement.
+ * A user is kept on the primary for the read-your-writes window only after a transaction of theirs committed an
+ * insert, update or delete; one that merely wasn't marked read-only doesn't count.
+ * Every decision is counted as datasource.routing, tagged with the target and the reason.
+ * */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+  static final String PRIMARY = "primary";
+  static final String REPLICA = "replica";
+
+  // Statements that change rows, optionally behind the comments Hibernate can put in front of them
+  private static final Pattern DML = Pattern.compile("\\s*(/\\*.*?\\*/\\s*)*(insert|update|delete|merge|replace)\\b",
+    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private final ReadYourWritesTracker readYourWritesTracker;
+  private final Counter writes;
+  private final Counter reads;
+  private final Counter readsAfterWrite;
+
+  public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+    this.readYourWritesTracker = readYourWritesTracker;
+    this.writes = routingCounter(meterRegistry, PRIMARY, "write");
+    // Without a replica, reads fall through to the primary and are counted there
+    this.reads = routingCounter(meterRegistry, replica == primary ? PRIMARY : REPLICA, "read-only");
+    this.readsAfterWrite = routingCounter(meterRegistry, PRIMARY, "read-your-writes");
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    targets.put(REPLICA, replica);
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return watchForWrites(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return watchForWrites(super.getConnection(username, password));
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      writes.increment();
+      return PRIMARY;
+    }
+    Long userId = currentUserId();
+    if (userId != null && readYourWritesTracker.wroteRecently(userId)) {
+      readsAfterWrite.increment();
+      return PRIMARY;
+    }
+    reads.increment();
+    return REPLICA;
+  }
+
+  private Connection watchForWrites(Connection connection) {
+    Long userId = currentUserId();
+    if (userId == null || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+      || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      return connection;
+    }
+    WriteRecorder recorder = new WriteRecorder(userId);
+    TransactionSynchronizationManager.registerSynchronization(recorder);
+    return proxy(Connection.class, new ConnectionHandler(connection, recorder));
+  }
+
+  private static Long currentUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal) {
+      return ((UserPrincipal) authentication.getPrincipal()).getUserId();
+    }
+    return null;
+  }
+
+  private static boolean isDml(String sql) {
+    return sql != null && DML.matcher(sql).lookingAt();
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(ReadWriteRoutingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private static Counter routingCounter(MeterRegistry meterRegistry, String target, String reason) {
+    return Counter.builder("datasource.routing")
+      .description("Connections handed out by the read/write routing datasource")
+      .tag("target", target)
+      .tag("reason", reason)
+      .register(meterRegistry);
+  }
+
+  private class WriteRecorder extends TransactionSynchronizationAdapter {
+    private final Long userId;
+    private volatile boolean wrote;
+
+    WriteRecorder(Long userId) {
+      this.userId = userId;
+    }
+
+    @Override
+    public void afterCommit() {
+      if (wrote) {
+        readYourWritesTracker.recordWrite(userId);
+      }
+    }
+  }
+
+  private static class ConnectionHandler implements InvocationHandler {
+    private final Connection target;
+    private final WriteRecorder recorder;
+
+    ConnectionHandler(Connection target, WriteRecorder recorder) {
+      this.target = target;
+      this.recorder = recorder;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = ReadWriteRoutingDataSource.invoke(target, method, args);
+      switch (method.getName()) {
+        case "createStatement":
+          return proxy(Statement.class, new StatementHandler((Statement) result, false, recorder));
+        case "prepareStatement":
+          return proxy(PreparedStatement.class, new StatementHandler((Statement) result, isDml((String) args[0]), recorder));
+        case "prepareCall":
+          // A stored procedure may write anything
+          return proxy(CallableStatement.class, new StatementHandler((Statement) result, true, recorder));
+        default:
+          return result;
+      }
+    }
+  }
+
+  private static class StatementHandler implements InvocationHandler {
+    private final Statement target;
+    // Whether executing the prepared SQL writes; plain statements are given their SQL on every execute
+    private final boolean preparedDml;
+    private final WriteRecorder recorder;
+
+    StatementHandler(Statement target, boolean preparedDml, WriteRecorder recorder) {
+      this.target = target;
+      this.preparedDml = preparedDml;
+      this.recorder = recorder;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getName().startsWith("execute") && writes(method, args)) {
+        recorder.wrote = true;
+      }
+      return ReadWriteRoutingDataSource.invoke(target, method, args);
+    }
+
+    private boolean writes(Method method, Object[] args) {
+      if (args != null && args.length > 0 && args[0] instanceof String) {
+        return isDml((String) args[0]);
+      }
+      // A plain statement's batch was built from addBatch calls, which are updates by definition
+      return preparedDml || method.getName().startsWith("executeBatch") || method.getName().startsWith("executeLargeBatch");
+    }
+  }
+}
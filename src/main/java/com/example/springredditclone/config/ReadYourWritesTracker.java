@@ -0,0 +1,38 @@
+package com.example.springredditclone.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers which users committed a write in the last datasource.read-your-writes-window milliseconds. Their
+ * read-only transactions stay on the primary for that long, so a replica that lags behind can't hide their own
+ * post, comment or vote from them.
+ * */
+@Component
+public class ReadYourWritesTracker {
+  private final ConcurrentMap<Long, Long> lastWriteMillis = new ConcurrentHashMap<>();
+  private final long windowMillis;
+
+  public ReadYourWritesTracker(@Value("${datasource.read-your-writes-window:5000}") long windowMillis) {
+    this.windowMillis = windowMillis;
+  }
+
+  public void recordWrite(Long userId) {
+    lastWriteMillis.put(userId, System.currentTimeMillis());
+  }
+
+  public boolean wroteRecently(Long userId) {
+    Long writtenAt = lastWriteMillis.get(userId);
+    return writtenAt != null && System.currentTimeMillis() - writtenAt < windowMillis;
+  }
+
+  @Scheduled(fixedDelayString = "${datasource.read-your-writes-window:5000}")
+  public void evictExpired() {
+    long expiredBefore = System.currentTimeMillis() - windowMillis;
+    lastWriteMillis.values().removeIf(writtenAt -> writtenAt < expiredBefore);
+  }
+}
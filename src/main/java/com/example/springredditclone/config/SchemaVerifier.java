@@ -0,0 +1,92 @@
+package com.example.springredditclone.config;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Hibernate's ddl-auto=validate only checks tables and columns. This checks that every index and unique constraint
+ * declared on an entity's @Table exists too, so a migration that was skipped or an index dropped by hand stops
+ * the application at startup instead of turning a finder into a table scan.
+ * */
+@Component
+@AllArgsConstructor
+@Slf4j
+public class SchemaVerifier {
+  private final EntityManagerFactory entityManagerFactory;
+  private final DataSource dataSource;
+
+  @PostConstruct
+  public void verify() throws SQLException {
+    List<String> missing = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection()) {
+      DatabaseMetaData metaData = connection.getMetaData();
+      for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+        Table table = entity.getJavaType().getAnnotation(Table.class);
+        if (table == null) {
+          continue;
+        }
+        String tableName = table.name().isEmpty() ? toSnakeCase(entity.getName()) : table.name();
+        Set<String> existing = indexNames(metaData, connection.getCatalog(), tableName);
+        for (Index index : table.indexes()) {
+          if (!existing.contains(index.name().toLowerCase(Locale.ROOT))) {
+            missing.add(tableName + "." + index.name());
+          }
+        }
+        for (UniqueConstraint constraint : table.uniqueConstraints()) {
+          if (!existing.contains(constraint.name().toLowerCase(Locale.ROOT))) {
+            missing.add(tableName + "." + constraint.name());
+          }
+        }
+      }
+    }
+    if (!missing.isEmpty()) {
+      throw new IllegalStateException("Database schema is missing indexes " + missing
+        + ", apply the migrations in db/migration");
+    }
+    log.info("Database schema has every index the entities declare");
+  }
+
+  private static Set<String> indexNames(DatabaseMetaData metaData, String catalog, String tableName) throws SQLException {
+    String name = metaData.storesUpperCaseIdentifiers() ? tableName.toUpperCase(Locale.ROOT) : tableName;
+    Set<String> indexNames = new HashSet<>();
+    try (ResultSet indexes = metaData.getIndexInfo(catalog, null, name, false, true)) {
+      while (indexes.next()) {
+        String indexName = indexes.getString("INDEX_NAME");
+        if (indexName != null) {
+          indexNames.add(indexName.toLowerCase(Locale.ROOT));
+        }
+      }
+    }
+    return indexNames;
+  }
+
+  // Same rule as SpringPhysicalNamingStrategy, which names the tables
+  private static String toSnakeCase(String name) {
+    StringBuilder builder = new StringBuilder(name.replace('.', '_'));
+    for (int i = 1; i < builder.length() - 1; i++) {
+      if (Character.isLowerCase(builder.charAt(i - 1)) && Character.isUpperCase(builder.charAt(i))
+        && Character.isLowerCase(builder.charAt(i + 1))) {
+        builder.insert(i++, '_');
+      }
+    }
+    return builder.toString().toLowerCase(Locale.ROOT);
+  }
+}
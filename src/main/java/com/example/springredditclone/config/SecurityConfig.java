@@ -1,6 +1,7 @@
 package com.example.springredditclone.config;
 
 import com.example.springredditclone.security.JwtAuthenticationFilter;
+import com.example.springredditclone.security.RateLimitFilter;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -12,7 +13,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -22,6 +22,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
   private final UserDetailsService userDetailsService;
   private final JwtAuthenticationFilter jwtAuthenticationFilter;
+  private final RateLimitFilter rateLimitFilter;
+  private final PasswordEncoder passwordEncoder;
 
   @Bean(BeanIds.AUTHENTICATION_MANAGER)
   @Override
@@ -33,6 +35,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
   public void configure(HttpSecurity httpSecurity) throws Exception {
     httpSecurity.csrf().disable()
       .authorizeRequests()
+      // Personal endpoints under otherwise public paths
+      .antMatchers("/api/posts/home", "/api/subreddit/*/subscription")
+      .authenticated()
       .antMatchers(
         "/api/auth/**",
         "/api/posts/**",
@@ -54,16 +59,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
       .authenticated();
     httpSecurity.addFilterBefore(jwtAuthenticationFilter,
       UsernamePasswordAuthenticationFilter.class);
+    httpSecurity.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
   }
 
   @Autowired
   public void configureGlobal(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
     authenticationManagerBuilder.userDetailsService(userDetailsService)
-      .passwordEncoder(passwordEncoder());
-  }
-
-  @Bean
-  PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+      .passwordEncoder(passwordEncoder);
   }
 }
@@ -0,0 +1,34 @@
+package com.example.springredditclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How many statements a request may run, from sql.budget.*. The first route whose pattern and method match a
+ * request sets its budget; other requests get default-max-statements.
+ * */
+@Data
+@Component
+@ConfigurationProperties("sql.budget")
+public class SqlBudgetProperties {
+  private List<Route> routes = new ArrayList<>();
+  /** Budget for requests no route matches; 0 means unlimited. */
+  private int defaultMaxStatements;
+  /** A request running the same statement this many times is logged as a likely N+1. */
+  private int repeatThreshold = 5;
+  /** Fail requests over budget instead of only logging them. Meant for tests, not production. */
+  private boolean failOnExceed;
+
+  @Data
+  public static class Route {
+    /** Ant-style path pattern, e.g. /api/posts/** */
+    private String pattern;
+    /** HTTP methods the budget applies to; empty means all of them. */
+    private List<String> methods = new ArrayList<>();
+    private int maxStatements;
+  }
+}
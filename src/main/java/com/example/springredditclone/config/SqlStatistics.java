@@ -0,0 +1,61 @@
+package com.example.springredditclone.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements, rows and database time of the HTTP request running on the current thread. SqlStatisticsFilter
+ * starts and clears it around each request, and InstrumentedDataSource records into it; statements run outside a
+ * request (scheduled jobs, event listeners) are not counted.
+ * */
+public class SqlStatistics {
+  private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+  private int statements;
+  private long rows;
+  private long nanos;
+  // Executions per SQL string; a prepared statement run many times with different parameters is the N+1 shape
+  private final Map<String, Integer> executions = new HashMap<>();
+
+  static SqlStatistics start() {
+    SqlStatistics statistics = new SqlStatistics();
+    CURRENT.set(statistics);
+    return statistics;
+  }
+
+  static void clear() {
+    CURRENT.remove();
+  }
+
+  static SqlStatistics current() {
+    return CURRENT.get();
+  }
+
+  void recordExecution(String sql, long elapsedNanos, long affectedRows) {
+    statements++;
+    nanos += elapsedNanos;
+    rows += affectedRows;
+    executions.merge(sql, 1, Integer::sum);
+  }
+
+  void recordRow() {
+    rows++;
+  }
+
+  public int getStatements() {
+    return statements;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public long getNanos() {
+    return nanos;
+  }
+
+  public Map<String, Integer> getExecutions() {
+    return Collections.unmodifiableMap(executions);
+  }
+}
@@ -0,0 +1,127 @@
+package com.example.springredditclone.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the statements, rows and database time of every request through InstrumentedDataSource. The totals go
+ * out as a Server-Timing header (visible in the browser's network tab) and as the sql.statements, sql.rows and
+ * sql.time metrics per endpoint. Statements repeated sql.budget.repeat-threshold times and requests over their
+ * sql.budget are logged; with sql.budget.fail-on-exceed the latter also fail, which is how tests catch a new N+1.
+ * Runs first, so the lookups done by the security filters are counted too.
+ * */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+  private static final String SERVER_TIMING = "Server-Timing";
+
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+  @Autowired
+  private SqlBudgetProperties properties;
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+    SqlStatistics statistics = SqlStatistics.start();
+    ServerTimingResponse timingResponse = new ServerTimingResponse(response, statistics);
+    try {
+      filterChain.doFilter(request, timingResponse);
+    } finally {
+      SqlStatistics.clear();
+    }
+    // Nothing forced the response out yet, so the header can still be added with the final totals
+    if (!timingResponse.headerWritten) {
+      timingResponse.writeHeader();
+    }
+    report(request, statistics);
+  }
+
+  private void report(HttpServletRequest request, SqlStatistics statistics) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+    Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+    DistributionSummary.builder("sql.statements").description("SQL statements run per request").tags(tags)
+      .register(meterRegistry).record(statistics.getStatements());
+    DistributionSummary.builder("sql.rows").description("Rows read or changed per request").tags(tags)
+      .register(meterRegistry).record(statistics.getRows());
+    Timer.builder("sql.time").description("Time spent executing SQL per request").tags(tags)
+      .register(meterRegistry).record(statistics.getNanos(), TimeUnit.NANOSECONDS);
+
+    for (Map.Entry<String, Integer> execution : statistics.getExecutions().entrySet()) {
+      if (execution.getValue() >= properties.getRepeatThreshold()) {
+        meterRegistry.counter("sql.repeated", tags).increment();
+        log.warn("{} {} ran the same statement {} times, likely an N+1: {}", request.getMethod(), uri,
+          execution.getValue(), execution.getKey());
+      }
+    }
+
+    int budget = budget(request);
+    if (budget > 0 && statistics.getStatements() > budget) {
+      String message = String.format("%s %s ran %d SQL statements, its budget is %d", request.getMethod(), uri,
+        statistics.getStatements(), budget);
+      if (properties.isFailOnExceed()) {
+        throw new IllegalStateException(message);
+      }
+      log.warn(message);
+    }
+  }
+
+  private int budget(HttpServletRequest request) {
+    for (SqlBudgetProperties.Route route : properties.getRoutes()) {
+      if ((route.getMethods().isEmpty() || route.getMethods().contains(request.getMethod()))
+        && pathMatcher.match(route.getPattern(), request.getServletPath())) {
+        return route.getMaxStatements();
+      }
+    }
+    return properties.getDefaultMaxStatements();
+  }
+
+  /**
+   * Headers can't change once the response is committed, so the header is written at that moment with the totals
+   * so far. Statements run while the body streams out still reach the metrics, just not the header.
+   * */
+  private static class ServerTimingResponse extends OnCommittedResponseWrapper {
+    private final SqlStatistics statistics;
+    private boolean headerWritten;
+
+    ServerTimingResponse(HttpServletResponse response, SqlStatistics statistics) {
+      super(response);
+      this.statistics = statistics;
+    }
+
+    @Override
+    protected void onResponseCommitted() {
+      writeHeader();
+    }
+
+    private void writeHeader() {
+      headerWritten = true;
+      double millis = statistics.getNanos() / 1_000_000.0;
+      ((HttpServletResponse) getResponse()).addHeader(SERVER_TIMING, String.format(Locale.ROOT,
+        "db;dur=%.1f;desc=\"%d statements, %d rows\"", millis, statistics.getStatements(), statistics.getRows()));
+    }
+  }
+}
@@ -10,6 +10,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import static org.springframework.http.HttpStatus.OK;
@@ -30,8 +31,8 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public AuthenticationResponse login(@RequestBody LoginRequest loginRequest) {
-      return authService.login(loginRequest);
+    public AuthenticationResponse login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+      return authService.login(loginRequest, request.getRemoteAddr());
     }
 
     @GetMapping("accountVerification/{token}")
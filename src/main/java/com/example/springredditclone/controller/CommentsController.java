@@ -1,13 +1,13 @@
 package com.example.springredditclone.controller;
 
 import com.example.springredditclone.dto.CommentsDto;
+import com.example.springredditclone.dto.CursorPage;
 import com.example.springredditclone.service.CommentService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
+import static com.example.springredditclone.util.Constants.DEFAULT_PAGE_SIZE;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.ResponseEntity.status;
@@ -26,12 +26,32 @@ public class CommentsController {
   }
 
   @GetMapping("/by-post/{postId}")
-  public ResponseEntity<List<CommentsDto>> getAllCommentsForPost(@PathVariable Long postId) {
-    return status(OK).body(commentService.getAllCommentsForPost(postId));
+  public ResponseEntity<CursorPage<CommentsDto>> getAllCommentsForPost(@PathVariable Long postId,
+                                                                       @RequestParam(required = false) String after,
+                                                                       @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(OK).body(commentService.getAllCommentsForPost(postId, after, limit));
+  }
+
+  @GetMapping("/by-post/{postId}/threads")
+  public ResponseEntity<CursorPage<CommentsDto>> getThreadsForPost(@PathVariable Long postId,
+                                                                   @RequestParam(required = false) String after,
+                                                                   @RequestParam(defaultValue = "20") int threads,
+                                                                   @RequestParam(defaultValue = "3") int depth) {
+    return status(OK).body(commentService.getThreads(postId, after, threads, depth));
+  }
+
+  @GetMapping("/{commentId}/replies")
+  public ResponseEntity<CursorPage<CommentsDto>> getReplies(@PathVariable Long commentId,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(defaultValue = "3") int depth,
+                                                            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(OK).body(commentService.getReplies(commentId, after, depth, limit));
   }
 
   @GetMapping("/by-user/{userName}")
-  public ResponseEntity<List<CommentsDto>> getAllCommentsByUser(@PathVariable String userName) {
-    return status(OK).body(commentService.getAllCommentsForUser(userName));
+  public ResponseEntity<CursorPage<CommentsDto>> getAllCommentsByUser(@PathVariable String userName,
+                                                                      @RequestParam(required = false) String after,
+                                                                      @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(OK).body(commentService.getAllCommentsForUser(userName, after, limit));
   }
 }
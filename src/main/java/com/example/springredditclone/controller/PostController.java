@@ -1,15 +1,17 @@
 package com.example.springredditclone.controller;
 
+import com.example.springredditclone.dto.CursorPage;
 import com.example.springredditclone.dto.PostRequest;
 import com.example.springredditclone.dto.PostResponse;
+import com.example.springredditclone.model.PostSort;
+import com.example.springredditclone.model.TimeWindow;
 import com.example.springredditclone.service.PostService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation. *;
 
-import java.util.List;
-
+import static com.example.springredditclone.util.Constants.DEFAULT_PAGE_SIZE;
 import static org.springframework.http.ResponseEntity.status;
 
 @RestController
@@ -25,8 +27,17 @@ public class PostController {
   }
 
   @GetMapping
-  public ResponseEntity<List<PostResponse>> getAllPosts() {
-    return status(HttpStatus.OK).body(postService.getAllPosts());
+  public ResponseEntity<CursorPage<PostResponse>> getAllPosts(@RequestParam(defaultValue = "NEW") PostSort sort,
+                                                              @RequestParam(defaultValue = "ALL") TimeWindow window,
+                                                              @RequestParam(required = false) String after,
+                                                              @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(HttpStatus.OK).body(postService.getAllPosts(sort, window, after, limit));
+  }
+
+  @GetMapping("home")
+  public ResponseEntity<CursorPage<PostResponse>> getHomeFeed(@RequestParam(required = false) String after,
+                                                              @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(HttpStatus.OK).body(postService.getHomeFeed(after, limit));
   }
 
   @GetMapping("/{id}")
@@ -35,13 +46,18 @@ public class PostController {
   }
 
   @GetMapping("by-subreddit/{id}")
-  public ResponseEntity<List<PostResponse>> getPostsBySubreddit(@PathVariable Long id) {
-    return status(HttpStatus.OK).body(postService.getPostsBySubreddit(id));
+  public ResponseEntity<CursorPage<PostResponse>> getPostsBySubreddit(@PathVariable Long id,
+                                                                      @RequestParam(defaultValue = "NEW") PostSort sort,
+                                                                      @RequestParam(defaultValue = "ALL") TimeWindow window,
+                                                                      @RequestParam(required = false) String after,
+                                                                      @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(HttpStatus.OK).body(postService.getPostsBySubreddit(id, sort, window, after, limit));
   }
 
   @GetMapping("by-user/{username}")
-  public ResponseEntity<List<PostResponse>> getPostsByUsername(@PathVariable String username) {
-    System.out.println("username2: " + username);
-    return status(HttpStatus.OK).body(postService.getPostsByUsername(username));
+  public ResponseEntity<CursorPage<PostResponse>> getPostsByUsername(@PathVariable String username,
+                                                                     @RequestParam(required = false) String after,
+                                                                     @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+    return status(HttpStatus.OK).body(postService.getPostsByUsername(username, after, limit));
   }
 }
@@ -3,7 +3,10 @@ package com.example.springredditclone.controller;
 
 import com.example.springredditclone.dto.SubredditDto;
 import com.example.springredditclone.service.SubredditService;
+import com.example.springredditclone.service.SubscriptionService;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -14,6 +17,7 @@ import java.util.List;
 @AllArgsConstructor
 public class SubredditController {
   private final SubredditService subredditService;
+  private final SubscriptionService subscriptionService;
 
 
   @GetMapping
@@ -21,11 +25,29 @@ public class SubredditController {
     return subredditService.getAll();
   }
 
+  @GetMapping("/autocomplete")
+  public List<SubredditDto> autocomplete(@RequestParam String prefix,
+                                         @RequestParam(defaultValue = "10") int limit) {
+    return subredditService.complete(prefix, limit);
+  }
+
   @GetMapping("/{id}")
   public SubredditDto getSubreddit(@PathVariable Long id) {
     return subredditService.getSubreddit(id);
   }
 
+  @PostMapping("/{id}/subscription")
+  public ResponseEntity<Void> subscribe(@PathVariable Long id) {
+    subscriptionService.subscribe(id);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  @DeleteMapping("/{id}/subscription")
+  public ResponseEntity<Void> unsubscribe(@PathVariable Long id) {
+    subscriptionService.unsubscribe(id);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
   @PostMapping
   public SubredditDto create(@RequestBody @Valid SubredditDto subredditDto) {
     return subredditService.save(subredditDto);
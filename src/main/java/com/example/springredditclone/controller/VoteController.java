@@ -5,11 +5,15 @@ import com.example.springredditclone.service.VoteService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/votes/")
 @AllArgsConstructor
@@ -22,4 +26,9 @@ public class VoteController {
     voteService.vote(voteDto);
     return new ResponseEntity<>(HttpStatus.OK);
   }
+
+  @GetMapping("mine")
+  public ResponseEntity<List<VoteDto>> getMyVotes(@RequestParam List<Long> postIds) {
+    return ResponseEntity.status(HttpStatus.OK).body(voteService.getVotesForCurrentUser(postIds));
+  }
 }
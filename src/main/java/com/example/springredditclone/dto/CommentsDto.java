@@ -15,4 +15,8 @@ public class CommentsDto {
   private Instant createdDate;
   private String text;
   private String userName;
+  // Null for a top-level comment
+  private Long parentId;
+  private Integer depth;
+  private Integer replyCount;
 }
@@ -0,0 +1,16 @@
+package com.example.springredditclone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+  private List<T> items;
+  // Cursor to pass as "after" to fetch the following page, null on the last page
+  private String next;
+}
@@ -0,0 +1,12 @@
+package com.example.springredditclone.event;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+public class PostCreatedEvent {
+  Long postId;
+  Long subredditId;
+  Instant createdDate;
+}
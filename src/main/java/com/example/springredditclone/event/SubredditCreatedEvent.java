@@ -0,0 +1,10 @@
+package com.example.springredditclone.event;
+
+import lombok.Value;
+
+@Value
+public class SubredditCreatedEvent {
+  Long subredditId;
+  String name;
+  String description;
+}
@@ -0,0 +1,10 @@
+package com.example.springredditclone.event;
+
+import lombok.Value;
+
+@Value
+public class SubscriptionChangedEvent {
+  Long userId;
+  Long subredditId;
+  boolean subscribed;
+}
@@ -0,0 +1,13 @@
+package com.example.springredditclone.event;
+
+import com.example.springredditclone.model.VoteType;
+import lombok.Value;
+
+@Value
+public class VoteCastEvent {
+  Long postId;
+  Long userId;
+  VoteType voteType;
+  // Net change applied to the post's vote count
+  int delta;
+}
@@ -0,0 +1,12 @@
+package com.example.springredditclone.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+@ResponseStatus(SERVICE_UNAVAILABLE)
+public class ServiceBusyException extends RuntimeException {
+  public ServiceBusyException(String message) {
+    super(message);
+  }
+}
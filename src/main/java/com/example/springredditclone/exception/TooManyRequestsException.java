@@ -0,0 +1,12 @@
+package com.example.springredditclone.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+@ResponseStatus(TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException {
+  public TooManyRequestsException(String message) {
+    super(message);
+  }
+}
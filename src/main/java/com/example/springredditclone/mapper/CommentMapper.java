@@ -14,9 +14,14 @@ public interface CommentMapper {
   @Mapping(target = "createdDate", expression = "java(java.time.Instant.now())")
   @Mapping(target = "post", source = "post")
   @Mapping(target = "user", source = "user")
+  @Mapping(target = "parent", ignore = true)
+  @Mapping(target = "path", ignore = true)
+  @Mapping(target = "depth", ignore = true)
+  @Mapping(target = "replyCount", constant = "0")
   Comment map(CommentsDto commentsDto, Post post, User user);
 
   @Mapping(target = "postId", expression = "java(comment.getPost().getPostId())")
   @Mapping(target = "userName", expression = "java(comment.getUser().getUsername())")
+  @Mapping(target = "parentId", expression = "java(comment.getParent() == null ? null : comment.getParent().getId())")
   CommentsDto mapToDto(Comment comment);
 }
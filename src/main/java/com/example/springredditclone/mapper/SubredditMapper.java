@@ -2,14 +2,11 @@ package com.example.springredditclone.mapper;
 
 
 import com.example.springredditclone.dto.SubredditDto;
-import com.example.springredditclone.model.Post;
 import com.example.springredditclone.model.Subreddit;
 import org.mapstruct.InheritInverseConfiguration;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
-import java.util.List;
-
 
 /**
  * specify that this interface is a Mapstruct Mapper and Spring should identify it as a component and should be able
@@ -18,13 +15,9 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface SubredditMapper {
 
-  @Mapping(target = "numberOfPosts", expression = "java(mapPosts(subreddit.getPosts()))")
+  @Mapping(target = "numberOfPosts", source = "postCount")
   SubredditDto mapSubredditToDto(Subreddit subreddit);
 
-  default Integer mapPosts(List<Post> numberOfPosts) {
-    return numberOfPosts.size();
-  }
-
   @InheritInverseConfiguration
   @Mapping(target = "posts", ignore = true)
   Subreddit mapDtoToSubreddit(SubredditDto subreddit);
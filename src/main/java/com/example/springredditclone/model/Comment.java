@@ -1,5 +1,7 @@
 package com.example.springredditclone.model;
 
+import com.example.springredditclone.util.CommentIdGenerator;
+import com.example.springredditclone.util.CommentPath;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,15 +11,20 @@ import javax.validation.constraints.NotEmpty;
 import java.time.Instant;
 
 import static javax.persistence.FetchType.LAZY;
-import static javax.persistence.GenerationType.IDENTITY;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+  @Index(name = "idx_comment_post_path", columnList = "postId,path"),
+  @Index(name = "idx_comment_post_depth_path", columnList = "postId,depth,path"),
+  @Index(name = "idx_comment_post_created", columnList = "postId,createdDate,id"),
+  @Index(name = "idx_comment_user_created", columnList = "userId,createdDate,id")
+})
 public class Comment {
   @Id
-  @GeneratedValue(strategy = IDENTITY)
+  @GeneratedValue(generator = CommentIdGenerator.NAME)
   private Long id;
   @NotEmpty
   private String text;
@@ -28,4 +35,12 @@ public class Comment {
   @ManyToOne(fetch = LAZY)
   @JoinColumn(name = "userId", referencedColumnName = "userId")
   private User user;
+  @ManyToOne(fetch = LAZY)
+  @JoinColumn(name = "parentId", referencedColumnName = "id")
+  private Comment parent;
+  // See CommentPath; set by CommentIdGenerator together with the id. Top-level comments have depth 0
+  @Column(length = CommentPath.MAX_LENGTH)
+  private String path;
+  private Integer depth;
+  private Integer replyCount = 0;
 }
@@ -0,0 +1,31 @@
+package com.example.springredditclone.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * A refresh token issued before tokens were hashed and bound to a user (see V6__hashed_refresh_tokens.sql). Only
+ * read and deleted: the first refresh with one replaces it with a RefreshToken, and RefreshTokenSweeper deletes
+ * the rest once they are past the refresh token lifetime. The table is empty a lifetime after the upgrade.
+ * */
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "legacy_refresh_token", indexes = {
+  @Index(name = "idx_legacy_refresh_token_token", columnList = "token"),
+  @Index(name = "idx_legacy_refresh_token_created", columnList = "createdDate")
+})
+public class LegacyRefreshToken {
+  @Id
+  private Long id;
+  private String token;
+  private Instant createdDate;
+}
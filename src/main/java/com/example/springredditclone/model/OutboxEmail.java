@@ -0,0 +1,38 @@
+package com.example.springredditclone.model;
+
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+
+/**
+ * A notification email written in the same transaction as the change that triggered it. MailDispatcher sends it
+ * after commit and deletes the row once the SMTP server has accepted it.
+ * */
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idx_outbox_email_due", columnList = "status,nextAttemptAt"))
+public class OutboxEmail {
+    @Id
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+    private Long id;
+    private String recipient;
+    private String subject;
+    @Lob
+    private String body;
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+    private Integer attempts;
+    // Earliest time of the next send attempt; also pushed out while a dispatcher holds the row
+    private Instant nextAttemptAt;
+    private Instant createdDate;
+    private String lastError;
+}
@@ -0,0 +1,28 @@
+package com.example.springredditclone.model;
+
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+/**
+ * A change to Post.voteCount that is committed with its vote but not applied to the post row yet. VoteCountBuffer
+ * sums and deletes these rows in batches.
+ * */
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PendingVoteDelta {
+    @Id
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+    private Long id;
+    private Long postId;
+    private Integer delta;
+}
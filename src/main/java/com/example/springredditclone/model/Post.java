@@ -1,5 +1,6 @@
 package com.example.springredditclone.model;
 
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,16 +12,21 @@ import javax.validation.constraints.NotBlank;
 import java.time.Instant;
 
 import static javax.persistence.FetchType.LAZY;
-import static javax.persistence.GenerationType.IDENTITY;
 
 @Data
 @Entity
+@Table(indexes = {
+  @Index(name = "idx_post_created", columnList = "createdDate,postId"),
+  @Index(name = "idx_post_subreddit_created", columnList = "id,createdDate,postId"),
+  @Index(name = "idx_post_user_created", columnList = "userId,createdDate,postId"),
+  @Index(name = "idx_post_vote_count", columnList = "voteCount,postId")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class Post {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
     private Long postId;
     @NotBlank(message = "Post Name cannot be empty or Null")
     private String postName;
@@ -29,7 +35,12 @@ public class Post {
     @Nullable
     @Lob
     private String description;
+    @Builder.Default
     private Integer voteCount = 0;
+    // Denormalized, kept in step with the comment table by CommentService.save
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer commentCount = 0;
     @ManyToOne(fetch = LAZY)
     @JoinColumn(name = "userId", referencedColumnName = "userId")
     private User user;
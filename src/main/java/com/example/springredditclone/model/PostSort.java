@@ -0,0 +1,5 @@
+package com.example.springredditclone.model;
+
+public enum PostSort {
+    HOT, NEW, TOP, RISING
+}
@@ -1,23 +1,36 @@
 package com.example.springredditclone.model;
 
+import com.example.springredditclone.util.TokenHash;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
-import javax.persistence.Id;
+import javax.persistence.*;
 import java.time.Instant;
 
+import static javax.persistence.FetchType.LAZY;
+
+/**
+ * Only the hash of a refresh token is stored, and it is the primary key, so a lookup is a single index probe and
+ * a leaked table cannot be replayed.
+ * */
 @Data
 @Entity
+@Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@Table(indexes = {
+  @Index(name = "idx_refresh_token_user", columnList = "userId"),
+  @Index(name = "idx_refresh_token_expiry", columnList = "expiryDate")
+})
 public class RefreshToken {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
-  private Long id;
-  private String token;
+  @Column(length = TokenHash.LENGTH)
+  private String tokenHash;
+  @ManyToOne(fetch = LAZY, optional = false)
+  @JoinColumn(name = "userId", referencedColumnName = "userId")
+  private User user;
   private Instant createdDate;
+  private Instant expiryDate;
 }
@@ -1,5 +1,6 @@
 package com.example.springredditclone.model;
 
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,24 +13,27 @@ import java.time.Instant;
 import java.util.List;
 
 import static javax.persistence.FetchType.LAZY;
-import static javax.persistence.GenerationType.IDENTITY;
 
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_subreddit_name", columnNames = "name"))
 @Builder
 public class Subreddit {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
     private Long id;
     @NotBlank(message = "Community name is required")
     private String name;
     @NotBlank(message = "Description is required")
     private String description;
-    @OneToMany(fetch = LAZY)
+    @OneToMany(fetch = LAZY, mappedBy = "subreddit")
     private List<Post> posts;
+    // Denormalized, incremented by PostService.save so listing subreddits never touches the post table
+    @Builder.Default
+    private Integer postCount = 0;
     private Instant createdDate;
     @ManyToOne(fetch = LAZY)
     private User user;
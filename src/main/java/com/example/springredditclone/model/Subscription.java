@@ -0,0 +1,32 @@
+package com.example.springredditclone.model;
+
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+import static javax.persistence.FetchType.LAZY;
+
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_subscription_user_subreddit", columnNames = {"userId", "subredditId"}),
+  indexes = @Index(name = "idx_subscription_subreddit", columnList = "subredditId"))
+public class Subscription {
+    @Id
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+    private Long id;
+    @ManyToOne(fetch = LAZY, optional = false)
+    @JoinColumn(name = "userId", referencedColumnName = "userId")
+    private User user;
+    @ManyToOne(fetch = LAZY, optional = false)
+    @JoinColumn(name = "subredditId", referencedColumnName = "id")
+    private Subreddit subreddit;
+    private Instant createdDate;
+}
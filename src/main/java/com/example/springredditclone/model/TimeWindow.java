@@ -0,0 +1,19 @@
+package com.example.springredditclone.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Period a TOP listing looks back over
+public enum TimeWindow {
+    DAY(Duration.ofDays(1)), WEEK(Duration.ofDays(7)), MONTH(Duration.ofDays(30)), ALL(null);
+
+    private final Duration length;
+
+    TimeWindow(Duration length) {
+        this.length = length;
+    }
+
+    public boolean contains(Instant createdDate, Instant now) {
+        return length == null || createdDate.isAfter(now.minus(length));
+    }
+}
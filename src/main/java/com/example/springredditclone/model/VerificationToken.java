@@ -1,5 +1,6 @@
 package com.example.springredditclone.model;
 
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,17 +9,16 @@ import javax.persistence.*;
 import java.time.Instant;
 
 import static javax.persistence.FetchType.LAZY;
-import static javax.persistence.GenerationType.IDENTITY;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "token")
+@Table(name = "token", uniqueConstraints = @UniqueConstraint(name = "uk_token_token", columnNames = "token"))
 public class VerificationToken {
 
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
     private Long id;
     private String token;
     @OneToOne(fetch = LAZY)
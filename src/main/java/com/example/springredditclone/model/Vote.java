@@ -1,5 +1,6 @@
 package com.example.springredditclone.model;
 
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,16 +10,16 @@ import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 
 import static javax.persistence.FetchType.LAZY;
-import static javax.persistence.GenerationType.IDENTITY;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_vote_user_post", columnNames = {"userId", "postId"}))
 @Builder
 public class Vote {
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
     private Long voteId;
     private VoteType voteType;
     @NotNull
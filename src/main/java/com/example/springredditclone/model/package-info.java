@@ -0,0 +1,14 @@
+/**
+ * Every entity with a generated key uses the time-ordered generator declared here. Comments use a variant that
+ * also sets their path, see CommentIdGenerator.
+ * */
+@GenericGenerators({
+  @GenericGenerator(name = TimeOrderedIdGenerator.NAME, strategy = "com.example.springredditclone.util.TimeOrderedIdGenerator"),
+  @GenericGenerator(name = CommentIdGenerator.NAME, strategy = "com.example.springredditclone.util.CommentIdGenerator")
+})
+package com.example.springredditclone.model;
+
+import com.example.springredditclone.util.CommentIdGenerator;
+import com.example.springredditclone.util.TimeOrderedIdGenerator;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.GenericGenerators;
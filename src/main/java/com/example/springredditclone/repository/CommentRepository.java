@@ -1,16 +1,58 @@
 package com.example.springredditclone.repository;
 
+import com.example.springredditclone.dto.CommentsDto;
 import com.example.springredditclone.model.Comment;
-import com.example.springredditclone.model.Post;
-import com.example.springredditclone.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByPost(Post post);
+    // CommentsDto rows straight from one statement, joined to the author's username
+    String COMMENTS_DTO = "select new com.example.springredditclone.dto.CommentsDto(c.id, c.post.postId,"
+      + " c.createdDate, c.text, u.username, parentComment.id, c.depth, c.replyCount)"
+      + " from Comment c join c.user u left join c.parent parentComment";
 
-    List<Comment> findAllByUser(User user);
+    // Comments of a post, oldest first, seeking past the (createdDate, id) of the previous page
+    @Query(COMMENTS_DTO + " where c.post.postId = :postId order by c.createdDate, c.id")
+    Slice<CommentsDto> findDtosByPost(@Param("postId") Long postId, Pageable pageable);
+
+    @Query(COMMENTS_DTO + " where c.post.postId = :postId and (c.createdDate > :createdDate"
+      + " or (c.createdDate = :createdDate and c.id > :id)) order by c.createdDate, c.id")
+    Slice<CommentsDto> findDtosByPostAfter(@Param("postId") Long postId, @Param("createdDate") Instant createdDate,
+                                           @Param("id") Long id, Pageable pageable);
+
+    // Comments of a user, newest first
+    @Query(COMMENTS_DTO + " where u.username = :username order by c.createdDate desc, c.id desc")
+    Slice<CommentsDto> findDtosByUsername(@Param("username") String username, Pageable pageable);
+
+    @Query(COMMENTS_DTO + " where u.username = :username and (c.createdDate < :createdDate"
+      + " or (c.createdDate = :createdDate and c.id < :id)) order by c.createdDate desc, c.id desc")
+    Slice<CommentsDto> findDtosByUsernameBefore(@Param("username") String username,
+                                                @Param("createdDate") Instant createdDate,
+                                                @Param("id") Long id, Pageable pageable);
+
+    // Top-level comments of a post after the given path, oldest first
+    @Query("select c from Comment c where c.post.postId = :postId and c.depth = 0 and c.path > :afterPath"
+      + " order by c.path")
+    List<Comment> findRoots(@Param("postId") Long postId, @Param("afterPath") String afterPath, Pageable pageable);
+
+    // One range scan over (postId, path): every comment in (afterPath, toPath) down to maxDepth, in thread order
+    @EntityGraph(attributePaths = "user")
+    @Query("select c from Comment c where c.post.postId = :postId and c.path > :afterPath and c.path < :toPath"
+      + " and c.depth <= :maxDepth order by c.path")
+    List<Comment> findPathRange(@Param("postId") Long postId, @Param("afterPath") String afterPath,
+                                @Param("toPath") String toPath, @Param("maxDepth") Integer maxDepth, Pageable pageable);
+
+    @Modifying
+    @Query("update Comment c set c.replyCount = coalesce(c.replyCount, 0) + 1 where c.id = :commentId")
+    void incrementReplyCount(@Param("commentId") Long commentId);
 }
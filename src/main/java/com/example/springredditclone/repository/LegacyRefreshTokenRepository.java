@@ -0,0 +1,28 @@
+package com.example.springredditclone.repository;
+
+import com.example.springredditclone.model.LegacyRefreshToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface LegacyRefreshTokenRepository extends JpaRepository<LegacyRefreshToken, Long> {
+  Optional<LegacyRefreshToken> findByToken(String token);
+
+  @Modifying
+  @Query("delete from LegacyRefreshToken t where t.token = :token")
+  int deleteByToken(@Param("token") String token);
+
+  @Query("select t.id from LegacyRefreshToken t where t.createdDate < :cutoff")
+  List<Long> findIdsCreatedBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+  @Modifying
+  @Query("delete from LegacyRefreshToken t where t.id in :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
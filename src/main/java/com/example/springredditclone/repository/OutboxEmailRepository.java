@@ -0,0 +1,19 @@
+package com.example.springredditclone.repository;
+
+import com.example.springredditclone.model.OutboxEmail;
+import com.example.springredditclone.model.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+    // Locked so that two dispatchers never claim the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<OutboxEmail> findByStatusAndNextAttemptAtLessThanEqualOrderById(OutboxStatus status, Instant now, Pageable pageable);
+}
@@ -0,0 +1,24 @@
+package com.example.springredditclone.repository;
+
+import com.example.springredditclone.model.PendingVoteDelta;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+public interface PendingVoteDeltaRepository extends JpaRepository<PendingVoteDelta, Long> {
+  /**
+   * The oldest pending deltas, locked until the flushing transaction ends, so flushers on different nodes never
+   * apply the same delta twice.
+   * */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select d from PendingVoteDelta d order by d.id")
+  List<PendingVoteDelta> findOldestForUpdate(Pageable pageable);
+
+  // Votes not flushed into Post.voteCount yet, summed per post. The table only holds about one flush interval
+  @Query("select d.postId as postId, sum(d.delta) as delta from PendingVoteDelta d group by d.postId")
+  List<PendingVoteSum> sumByPost();
+}
@@ -0,0 +1,7 @@
+package com.example.springredditclone.repository;
+
+public interface PendingVoteSum {
+  Long getPostId();
+
+  Long getDelta();
+}
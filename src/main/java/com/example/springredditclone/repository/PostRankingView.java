@@ -0,0 +1,13 @@
+package com.example.springredditclone.repository;
+
+import java.time.Instant;
+
+public interface PostRankingView {
+  Long getPostId();
+
+  Long getSubredditId();
+
+  Integer getVoteCount();
+
+  Instant getCreatedDate();
+}
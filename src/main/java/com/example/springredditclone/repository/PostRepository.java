@@ -3,15 +3,97 @@ package com.example.springredditclone.repository;
 import com.example.springredditclone.model.Post;
 import com.example.springredditclone.model.Subreddit;
 import com.example.springredditclone.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
-    List<Post> findAllBySubreddit(Subreddit subreddit);
+    // Keyset pages, newest first. The "Before" variants seek past the (createdDate, postId) of the previous page.
+    // Author and subreddit are fetched in the same statement so mapping a page to PostResponse needs no further SELECTs.
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    Slice<Post> findAllByOrderByCreatedDateDescPostIdDesc(Pageable pageable);
 
-    List<Post> findByUser(User user);
-}
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    @Query("select p from Post p where p.createdDate < :createdDate"
+      + " or (p.createdDate = :createdDate and p.postId < :postId)"
+      + " order by p.createdDate desc, p.postId desc")
+    Slice<Post> findAllBefore(@Param("createdDate") Instant createdDate, @Param("postId") Long postId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    Slice<Post> findBySubredditOrderByCreatedDateDescPostIdDesc(Subreddit subreddit, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    @Query("select p from Post p where p.subreddit = :subreddit and (p.createdDate < :createdDate"
+      + " or (p.createdDate = :createdDate and p.postId < :postId))"
+      + " order by p.createdDate desc, p.postId desc")
+    Slice<Post> findBySubredditBefore(@Param("subreddit") Subreddit subreddit, @Param("createdDate") Instant createdDate,
+                                      @Param("postId") Long postId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    Slice<Post> findByUserOrderByCreatedDateDescPostIdDesc(User user, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    @Query("select p from Post p where p.user = :user and (p.createdDate < :createdDate"
+      + " or (p.createdDate = :createdDate and p.postId < :postId))"
+      + " order by p.createdDate desc, p.postId desc")
+    Slice<Post> findByUserBefore(@Param("user") User user, @Param("createdDate") Instant createdDate,
+                                 @Param("postId") Long postId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    Optional<Post> findWithUserAndSubredditByPostId(Long postId);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    List<Post> findByPostIdIn(Collection<Long> postIds);
 
+    // Ranking index load: posts created after a point in time, paged oldest first by (createdDate, postId) ...
+    @Query("select p.postId as postId, p.subreddit.id as subredditId, p.voteCount as voteCount,"
+      + " p.createdDate as createdDate from Post p where p.createdDate > :createdDate"
+      + " or (p.createdDate = :createdDate and p.postId > :postId)"
+      + " order by p.createdDate, p.postId")
+    List<PostRankingView> findRankingViewsAfter(@Param("createdDate") Instant createdDate, @Param("postId") Long postId,
+                                                Pageable pageable);
+
+    // ... and the most voted posts of all time, whatever their age
+    @Query("select p.postId as postId, p.subreddit.id as subredditId, p.voteCount as voteCount,"
+      + " p.createdDate as createdDate from Post p order by p.voteCount desc, p.postId desc")
+    List<PostRankingView> findTopRankingViews(Pageable pageable);
+
+    // Ranking index sync: the current vote counts of posts already in the index
+    @Query("select p.postId as postId, p.subreddit.id as subredditId, p.voteCount as voteCount,"
+      + " p.createdDate as createdDate from Post p where p.postId in :postIds")
+    List<PostRankingView> findRankingViews(@Param("postIds") Collection<Long> postIds);
+
+    // Home feed: the newest posts across a set of subreddits, as ids for the in-memory timelines or as a keyset page
+    // once a reader pages past what the timelines hold
+    @Query("select p.postId as postId, p.subreddit.id as subredditId, p.voteCount as voteCount,"
+      + " p.createdDate as createdDate from Post p where p.subreddit.id in :subredditIds"
+      + " order by p.createdDate desc, p.postId desc")
+    List<PostRankingView> findRecentViews(@Param("subredditIds") Collection<Long> subredditIds, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    @Query("select p from Post p where p.subreddit.id in :subredditIds order by p.createdDate desc, p.postId desc")
+    Slice<Post> findBySubredditIds(@Param("subredditIds") Collection<Long> subredditIds, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "subreddit"})
+    @Query("select p from Post p where p.subreddit.id in :subredditIds and (p.createdDate < :createdDate"
+      + " or (p.createdDate = :createdDate and p.postId < :postId))"
+      + " order by p.createdDate desc, p.postId desc")
+    Slice<Post> findBySubredditIdsBefore(@Param("subredditIds") Collection<Long> subredditIds,
+                                         @Param("createdDate") Instant createdDate, @Param("postId") Long postId,
+                                         Pageable pageable);
+
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount + 1 where p.postId = :postId")
+    void incrementCommentCount(@Param("postId") Long postId);
+}
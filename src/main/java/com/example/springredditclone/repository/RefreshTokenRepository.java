@@ -1,12 +1,33 @@
 package com.example.springredditclone.repository;
 
 import com.example.springredditclone.model.RefreshToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-  Optional<RefreshToken> findByToken(String token);
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+  @EntityGraph(attributePaths = "user")
+  Optional<RefreshToken> findWithUserByTokenHash(String tokenHash);
 
-  void deleteByToken(String token);
+  @Modifying
+  @Query("delete from RefreshToken t where t.tokenHash = :tokenHash")
+  int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+  /**
+   * A bounded batch of expired tokens, so each sweep transaction only deletes and locks that many rows.
+   * */
+  @Query("select t.tokenHash from RefreshToken t where t.expiryDate < :now")
+  List<String> findExpiredTokenHashes(@Param("now") Instant now, Pageable pageable);
+
+  @Modifying
+  @Query("delete from RefreshToken t where t.tokenHash in :tokenHashes")
+  int deleteByTokenHashIn(@Param("tokenHashes") Collection<String> tokenHashes);
 }
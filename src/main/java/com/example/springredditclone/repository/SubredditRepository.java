@@ -1,14 +1,32 @@
 package com.example.springredditclone.repository;
 
+import com.example.springredditclone.dto.SubredditDto;
 import com.example.springredditclone.model.Subreddit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SubredditRepository extends JpaRepository<Subreddit, Long> {
 
     Optional<Subreddit> findByName(String subredditName);
+
+    String SUBREDDIT_DTO = "select new com.example.springredditclone.dto.SubredditDto("
+      + "s.id, s.name, s.description, coalesce(s.postCount, 0)) from Subreddit s";
+
+    @Query(SUBREDDIT_DTO)
+    List<SubredditDto> findAllDtos();
+
+    @Query(SUBREDDIT_DTO + " where s.id = :id")
+    Optional<SubredditDto> findDtoById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Subreddit s set s.postCount = coalesce(s.postCount, 0) + 1 where s.id = :id")
+    void incrementPostCount(@Param("id") Long id);
 }
 
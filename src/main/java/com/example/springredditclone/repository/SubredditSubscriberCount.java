@@ -0,0 +1,7 @@
+package com.example.springredditclone.repository;
+
+public interface SubredditSubscriberCount {
+  Long getSubredditId();
+
+  Long getSubscribers();
+}
@@ -0,0 +1,25 @@
+package com.example.springredditclone.repository;
+
+import com.example.springredditclone.model.Subscription;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
+  boolean existsByUserUserIdAndSubredditId(Long userId, Long subredditId);
+
+  @Query("select s.subreddit.id from Subscription s where s.user.userId = :userId")
+  List<Long> findSubredditIds(@Param("userId") Long userId);
+
+  @Query("select s.subreddit.id as subredditId, count(s) as subscribers from Subscription s group by s.subreddit.id")
+  List<SubredditSubscriberCount> countSubscribers();
+
+  @Modifying
+  @Query("delete from Subscription s where s.user.userId = :userId and s.subreddit.id = :subredditId")
+  int deleteSubscription(@Param("userId") Long userId, @Param("subredditId") Long subredditId);
+}
@@ -1,15 +1,24 @@
 package com.example.springredditclone.repository;
 
+import com.example.springredditclone.dto.VoteDto;
 import com.example.springredditclone.model.Post;
 import com.example.springredditclone.model.User;
 import com.example.springredditclone.model.Vote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface VoteRepository extends JpaRepository<Vote, Long> {
-    // Get the recent vote by the user within the vote
-    Optional<Vote> findTopByPostAndUserOrderByVoteIdDesc(Post post, User currentUser);
+    // A user holds at most one vote per post, enforced by uk_vote_user_post
+    Optional<Vote> findByPostAndUser(Post post, User user);
+
+    @Query("select new com.example.springredditclone.dto.VoteDto(v.voteType, v.post.postId) from Vote v"
+      + " where v.user.userId = :userId and v.post.postId in :postIds")
+    List<VoteDto> findVotesByUser(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
 }
@@ -0,0 +1,82 @@
+package com.example.springredditclone.security;
+
+import com.example.springredditclone.exception.ServiceBusyException;
+import com.example.springredditclone.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * BCrypt that runs on the bounded passwordHashingExecutor, so a burst of logins can only keep as many cores busy
+ * as the pool has threads. A full pool answers 429 at once, and a hash that waits longer than
+ * auth.password-hashing.timeout answers 503. The request thread still blocks for the hash, up to that timeout;
+ * what the pool bounds is the CPU spent hashing, not the servlet threads waiting for it.
+ * */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+  private final PasswordEncoder delegate = new BCryptPasswordEncoder();
+  private final ThreadPoolTaskExecutor executor;
+  private final long timeoutMillis;
+
+  public BoundedPasswordEncoder(@Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+                                @Value("${auth.password-hashing.timeout:2000}") long timeoutMillis) {
+    this.executor = executor;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return run(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  private <T> T run(Callable<T> hashing) {
+    Future<T> future;
+    try {
+      future = executor.submit(hashing);
+    } catch (TaskRejectedException e) {
+      throw new TooManyRequestsException("Too many login attempts in progress, try again shortly");
+    }
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      abandon(future);
+      throw new ServiceBusyException("Password check timed out, try again shortly");
+    } catch (InterruptedException e) {
+      abandon(future);
+      Thread.currentThread().interrupt();
+      throw new ServiceBusyException("Password check was interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Nobody waits for the result any more. A hash still in the queue is dropped so it neither runs nor holds a queue
+   * slot; one already running can't be stopped, since BCrypt never checks for interrupts, and finishes unused.
+   * */
+  private void abandon(Future<?> future) {
+    future.cancel(true);
+    // Without a task decorator, the future returned by submit is the task sitting in the queue
+    if (future instanceof Runnable) {
+      executor.getThreadPoolExecutor().remove((Runnable) future);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.example.springredditclone.security;
 
 
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,19 +30,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
   private JwtProvider jwtProvider;
   @Autowired
   private UserDetailsService userDetailsService;
+  @Autowired
+  private VerifiedTokenCache verifiedTokenCache;
 
 
   /**
-   * Once we get the username, we retrieve the user using the UserDetailsService class and store the user inside the SecurityContext
+   * Once we get the username, we retrieve the user using the UserDetailsService class and store the user inside the SecurityContext.
+   * The token is verified once per request and the resolved user is cached until the token expires.
    * */
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
     String jwt = getJwtFromRequest(request);
 
-    if (StringUtils.hasText(jwt) && jwtProvider.validateToken(jwt)) {
-      String username = jwtProvider.getUsernameFromJWT(jwt);
-
-      UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    if (StringUtils.hasText(jwt)) {
+      UserDetails userDetails = verifiedTokenCache.get(jwt);
+      if (userDetails == null) {
+        Claims claims = jwtProvider.parseClaims(jwt);
+        userDetails = jwtProvider.getPrincipal(claims);
+        if (userDetails == null) {
+          // Issued before tokens carried the user id
+          userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        verifiedTokenCache.put(jwt, userDetails, claims.getExpiration().toInstant());
+      }
+      if (!userDetails.isEnabled()) {
+        filterChain.doFilter(request, response);
+        return;
+      }
       UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails,
         null, userDetails.getAuthorities());
       authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
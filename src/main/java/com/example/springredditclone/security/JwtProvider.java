@@ -2,104 +2,282 @@ package com.example.springredditclone.security;
 
 import com.example.springredditclone.exception.SpringRedditException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.*;
+import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static java.util.Collections.singletonList;
 import static java.util.Date.from;
 
-import static io.jsonwebtoken.Jwts.parser;
-
 @Service
+@Slf4j
 public class JwtProvider {
-  private KeyStore keyStore;
+  private static final String KEYSTORE_PASSWORD = "secret";
+  // Development keystore inside the jar, used when there is none at jwt.keystore.location; it can't be rotated
+  private static final Resource BUNDLED_KEYSTORE = new ClassPathResource("springblog.jks");
+  // Tokens issued before key ids were introduced carry no kid and were signed with this key
+  private static final String LEGACY_KEY_ID = "springblog";
+  private static final String USER_ID_CLAIM = "uid";
+  private static final String ENABLED_CLAIM = "enabled";
+  private static final List<GrantedAuthority> USER_AUTHORITIES = singletonList(new SimpleGrantedAuthority("USER"));
 
   @Value("${jwt.expiration.time}")
   private Long jwtExpirationInMillis;
+  @Value("${jwt.keystore.location:file:config/springblog.jks}")
+  private Resource keyStoreLocation;
+  @Value("${jwt.keys.activation-delay:${jwt.keys.reload-interval:300000}}")
+  private long activationDelayMillis;
+  @Value("${jwt.hmac.key-ids:}")
+  private List<String> hmacKeyIds;
+  @Autowired
+  private Environment environment;
+
+  // Swapped as a whole on reload, so signers and verifiers always see a consistent key set
+  private volatile KeySet keySet;
+  // Built once; the resolver picks the verification key from the token's kid header on every parse
+  private final JwtParser jwtParser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+      return keySet.verificationKey(header.getKeyId(), header.getAlgorithm());
+    }
+  });
 
   // * The PostConstruct annotation is used on a method that needs to be executed
   // * after dependency injection is done to perform any initialization. This
   // * method MUST be invoked before the class is put into service.
   @PostConstruct
   public void init() {
+    if (!keyStoreLocation.exists()) {
+      log.warn("No JWT keystore at {}, signing with the bundled development key", keyStoreLocation);
+    }
+    keySet = loadKeySet();
+  }
+
+  /**
+   * Re-reads the keystore so a new key can be rolled out without a restart: generate a new key pair into the
+   * keystore file and every instance verifies its tokens from the next reload on. It starts signing once it is
+   * jwt.keys.activation-delay old, see activeKeyId. Tokens signed with the old key keep verifying for as long as
+   * its entry stays in the keystore. The same steps migrate between algorithms, since each key id carries its own.
+   * */
+  @Scheduled(fixedDelayString = "${jwt.keys.reload-interval:300000}")
+  public void reloadKeys() {
     try {
-      keyStore = KeyStore.getInstance("JKS");
-      InputStream resourceAsStream = getClass().getResourceAsStream("/springblog.jks");
-      keyStore.load(resourceAsStream, "secret".toCharArray());
-    } catch (KeyStoreException | CertificateException | NoSuchAlgorithmException | IOException e) {
-      throw new SpringRedditException("Exception occurred while loading keystore");
+      keySet = loadKeySet();
+    } catch (SpringRedditException e) {
+      log.error("Could not reload JWT keys, keeping the current ones", e);
     }
   }
 
+  private KeySet loadKeySet() {
+    Resource location = keyStoreLocation.exists() ? keyStoreLocation : BUNDLED_KEYSTORE;
+    try (InputStream inputStream = location.getInputStream()) {
+      KeyStore keyStore = KeyStore.getInstance("JKS");
+      keyStore.load(inputStream, KEYSTORE_PASSWORD.toCharArray());
+
+      Map<String, JwtKey> keys = new HashMap<>();
+      List<String> privateKeyIds = new ArrayList<>();
+      for (String alias : Collections.list(keyStore.aliases())) {
+        Certificate certificate = keyStore.getCertificate(alias);
+        if (certificate == null) {
+          continue;
+        }
+        PublicKey publicKey = certificate.getPublicKey();
+        Key privateKey = keyStore.isKeyEntry(alias) ? keyStore.getKey(alias, KEYSTORE_PASSWORD.toCharArray()) : null;
+        if (privateKey instanceof PrivateKey) {
+          privateKeyIds.add(alias);
+        } else {
+          privateKey = null;
+        }
+        keys.put(alias, new JwtKey(algorithmFor(alias, publicKey), privateKey, publicKey));
+      }
+      for (String keyId : hmacKeyIds) {
+        keys.put(keyId, hmacKey(keyId));
+      }
+
+      // Read on every reload; only needed to sign with an HMAC key or to hold back a rotation
+      String signingKeyId = environment.getProperty("jwt.signing.key-id", "");
+      if (signingKeyId.isEmpty()) {
+        signingKeyId = activeKeyId(keyStore, privateKeyIds);
+      }
+      JwtKey signingKey = signingKeyId == null ? null : keys.get(signingKeyId);
+      if (signingKey == null || signingKey.getSigningKey() == null) {
+        throw new SpringRedditException("No signing key with id " + signingKeyId + " in " + location);
+      }
+      return new KeySet(signingKeyId, signingKey, Collections.unmodifiableMap(keys));
+    } catch (KeyStoreException | CertificateException | NoSuchAlgorithmException | UnrecoverableKeyException | IOException e) {
+      throw new SpringRedditException("Exception occurred while loading keystore " + location, e);
+    }
+  }
+
+  /**
+   * The newest private key in the keystore signs once it is activation-delay old. By then every instance has
+   * reloaded the keystore and verifies its tokens, so a token signed by one instance is never rejected by another.
+   * Until then the key before it keeps signing; a keystore whose keys are all newer (a first deployment) signs with
+   * the oldest.
+   * */
+  private String activeKeyId(KeyStore keyStore, List<String> privateKeyIds) throws KeyStoreException {
+    Instant activeBefore = Instant.now().minusMillis(activationDelayMillis);
+    String active = null;
+    Instant activeCreated = null;
+    String oldest = null;
+    Instant oldestCreated = null;
+    for (String keyId : privateKeyIds) {
+      Instant created = keyStore.getCreationDate(keyId).toInstant();
+      if (!created.isAfter(activeBefore) && (active == null || created.isAfter(activeCreated))) {
+        active = keyId;
+        activeCreated = created;
+      }
+      if (oldest == null || created.isBefore(oldestCreated)) {
+        oldest = keyId;
+        oldestCreated = created;
+      }
+    }
+    return active != null ? active : oldest;
+  }
+
+  /**
+   * RSA keys sign with RS256 and P-256 keys with ES256. Anything else in the keystore is rejected rather than
+   * letting the JWT library guess an algorithm from the key size.
+   * */
+  private static SignatureAlgorithm algorithmFor(String keyId, PublicKey publicKey) {
+    if (publicKey instanceof RSAKey) {
+      return SignatureAlgorithm.RS256;
+    }
+    if (publicKey instanceof ECKey && ((ECKey) publicKey).getParams().getCurve().getField().getFieldSize() == 256) {
+      return SignatureAlgorithm.ES256;
+    }
+    throw new SpringRedditException("Unsupported key type " + publicKey.getAlgorithm() + " for JWT key " + keyId);
+  }
+
+  /**
+   * HMAC keys are shared secrets, so they only make sense when every service verifying our tokens is ours. The
+   * secret comes from jwt.hmac.<key id>.secret as base64 and must be at least 256 bits.
+   * */
+  private JwtKey hmacKey(String keyId) {
+    String secret = environment.getProperty("jwt.hmac." + keyId + ".secret");
+    if (secret == null) {
+      throw new SpringRedditException("No secret configured for HMAC JWT key " + keyId);
+    }
+    Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+    return new JwtKey(SignatureAlgorithm.HS256, key, key);
+  }
+
   public String generateToken(Authentication authentication) {
-    org.springframework.security.core.userdetails.User principal = (User) authentication.getPrincipal();
-    return Jwts.builder()
-      .setSubject(principal.getUsername())
-      .setIssuedAt(from(Instant.now()))
-      .signWith(getPrivateKey())
-      .setExpiration(Date.from(Instant.now().plusMillis(jwtExpirationInMillis)))
-      .compact();
+    UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+    return generateToken(principal.getUserId(), principal.getUsername(), principal.isEnabled());
   }
 
-  public String generateTokenWithUserName(String username) {
+  /**
+   * Besides the username, the token carries the user's id and enabled flag, so authenticating a request needs no
+   * user lookup.
+   * */
+  public String generateToken(Long userId, String username, boolean enabled) {
+    KeySet keys = keySet;
     return Jwts.builder()
+      .setHeaderParam(JwsHeader.KEY_ID, keys.getSigningKeyId())
       .setSubject(username)
+      .claim(USER_ID_CLAIM, userId)
+      .claim(ENABLED_CLAIM, enabled)
       .setIssuedAt(from(Instant.now()))
-      .signWith(getPrivateKey())
+      .signWith(keys.getSigningKey().getSigningKey(), keys.getSigningKey().getAlgorithm())
       .setExpiration(Date.from(Instant.now().plusMillis(jwtExpirationInMillis)))
       .compact();
   }
 
-  private PrivateKey getPrivateKey() {
-    try {
-      return (PrivateKey) keyStore.getKey("springblog", "secret".toCharArray());
-    } catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
-      throw new SpringRedditException("Exception occurred while retrieving public key from keystore");
-    }
-  }
-
   /**
    * The validateToken method uses the JwtParser class to validate our JWT. If you remember in the previous part,
    * we created our JWT by signing it with the Private Key. Now we can use the corresponding Public Key, to validate the token.
    * */
   public boolean validateToken(String jwt) {
-    parser().setSigningKey(getPublickey()).parseClaimsJws(jwt);
+    parseClaims(jwt);
     return true;
   }
 
-  private PublicKey getPublickey() {
-    try {
-      return keyStore.getCertificate("springblog").getPublicKey();
-    } catch (KeyStoreException e) {
-      throw new SpringRedditException("Exception occured while retrieving public key from keystore");
+  /**
+   * Verifies the signature and expiry of the token once and returns its claims.
+   * */
+  public Claims parseClaims(String jwt) {
+    return jwtParser.parseClaimsJws(jwt).getBody();
+  }
+
+  /**
+   * Builds the principal from verified claims, or returns null for tokens issued before the user id was added.
+   * */
+  public UserPrincipal getPrincipal(Claims claims) {
+    Number userId = claims.get(USER_ID_CLAIM, Number.class);
+    if (userId == null) {
+      return null;
     }
+    return new UserPrincipal(userId.longValue(), claims.getSubject(), "",
+      Boolean.TRUE.equals(claims.get(ENABLED_CLAIM, Boolean.class)), USER_AUTHORITIES);
   }
 
   public String getUsernameFromJWT(String token) {
-    Claims claims = parser()
-      .setSigningKey(getPublickey())
-      .parseClaimsJws(token)
-      .getBody();
-    return claims.getSubject();
+    return parseClaims(token).getSubject();
   }
 
   public String getUsernameFromJwt(String token) {
-    Claims claims = parser()
-      .setSigningKey(getPublickey())
-      .parseClaimsJws(token)
-      .getBody();
-    return claims.getSubject();
+    return parseClaims(token).getSubject();
   }
+
   public Long getJwtExpirationInMillis() {
     return jwtExpirationInMillis;
   }
+
+  @lombok.Value
+  private static class JwtKey {
+    SignatureAlgorithm algorithm;
+    // Null for keys we can only verify with
+    Key signingKey;
+    Key verificationKey;
+  }
+
+  @lombok.Value
+  private static class KeySet {
+    String signingKeyId;
+    JwtKey signingKey;
+    Map<String, JwtKey> keys;
+
+    Key verificationKey(String keyId, String algorithm) {
+      JwtKey key = keys.get(keyId == null ? LEGACY_KEY_ID : keyId);
+      if (key == null) {
+        throw new SpringRedditException("Unknown JWT signing key " + keyId);
+      }
+      // Never let the token header choose the algorithm, e.g. HS256 keyed with an RSA public key
+      if (!key.getAlgorithm().getValue().equals(algorithm)) {
+        throw new SpringRedditException("JWT key " + keyId + " does not sign with " + algorithm);
+      }
+      return key.getVerificationKey();
+    }
+  }
 }
@@ -0,0 +1,92 @@
+package com.example.springredditclone.security;
+
+import com.example.springredditclone.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts failed logins per account and per client address. Once either count reaches its limit, further attempts
+ * are refused without hashing the password until auth.login.lockout has passed since the first failure.
+ * */
+@Component
+public class LoginAttemptLimiter {
+  private final ConcurrentMap<String, Failures> failures = new ConcurrentHashMap<>();
+  private final int maxFailuresPerAccount;
+  private final int maxFailuresPerAddress;
+  private final long lockoutMillis;
+  private final int maxEntries;
+
+  public LoginAttemptLimiter(@Value("${auth.login.max-failures-per-account:5}") int maxFailuresPerAccount,
+                             @Value("${auth.login.max-failures-per-address:20}") int maxFailuresPerAddress,
+                             @Value("${auth.login.lockout:900000}") long lockoutMillis,
+                             @Value("${auth.login.max-entries:100000}") int maxEntries) {
+    this.maxFailuresPerAccount = maxFailuresPerAccount;
+    this.maxFailuresPerAddress = maxFailuresPerAddress;
+    this.lockoutMillis = lockoutMillis;
+    this.maxEntries = maxEntries;
+  }
+
+  public void checkAllowed(String username, String remoteAddress) {
+    Instant now = Instant.now();
+    if (failuresOf(accountKey(username), now) >= maxFailuresPerAccount
+      || failuresOf(addressKey(remoteAddress), now) >= maxFailuresPerAddress) {
+      throw new TooManyRequestsException("Too many failed login attempts, try again later");
+    }
+  }
+
+  public void recordFailure(String username, String remoteAddress) {
+    Instant now = Instant.now();
+    increment(accountKey(username), now);
+    increment(addressKey(remoteAddress), now);
+  }
+
+  public void recordSuccess(String username) {
+    failures.remove(accountKey(username));
+  }
+
+  @Scheduled(fixedDelayString = "${auth.login.lockout:900000}")
+  public void evictExpired() {
+    Instant now = Instant.now();
+    failures.values().removeIf(entry -> entry.isExpired(now));
+  }
+
+  private int failuresOf(String key, Instant now) {
+    Failures entry = failures.get(key);
+    return entry == null || entry.isExpired(now) ? 0 : entry.getCount();
+  }
+
+  private void increment(String key, Instant now) {
+    if (failures.size() >= maxEntries && !failures.containsKey(key)) {
+      evictExpired();
+      if (failures.size() >= maxEntries) {
+        return;
+      }
+    }
+    failures.compute(key, (k, entry) -> entry == null || entry.isExpired(now)
+      ? new Failures(1, now.plusMillis(lockoutMillis))
+      : new Failures(entry.getCount() + 1, entry.getExpiresAt()));
+  }
+
+  private static String accountKey(String username) {
+    return "user:" + username;
+  }
+
+  private static String addressKey(String remoteAddress) {
+    return "ip:" + remoteAddress;
+  }
+
+  @lombok.Value
+  private static class Failures {
+    int count;
+    Instant expiresAt;
+
+    boolean isExpired(Instant now) {
+      return !expiresAt.isAfter(now);
+    }
+  }
+}
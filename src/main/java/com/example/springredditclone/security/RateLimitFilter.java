@@ -0,0 +1,88 @@
+package com.example.springredditclone.security;
+
+import com.example.springredditclone.config.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Throttles the routes in rate-limit.routes with a token bucket per client and route. Runs after
+ * JwtAuthenticationFilter so logged-in users are limited by user id wherever they connect from, and anonymous
+ * callers by address. Every limited response carries the RateLimit-Limit, RateLimit-Remaining and
+ * RateLimit-Reset headers, and a rejected one also carries Retry-After.
+ * */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+  private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+  @Autowired
+  private RateLimitProperties properties;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+    List<RateLimitProperties.Route> routes = properties.getRoutes();
+    for (int i = 0; i < routes.size(); i++) {
+      RateLimitProperties.Route route = routes.get(i);
+      if (matches(route, request)) {
+        if (!consume(i, route, request, response)) {
+          return;
+        }
+        break;
+      }
+    }
+    filterChain.doFilter(request, response);
+  }
+
+  private boolean matches(RateLimitProperties.Route route, HttpServletRequest request) {
+    return (route.getMethods().isEmpty() || route.getMethods().contains(request.getMethod()))
+      && pathMatcher.match(route.getPattern(), request.getServletPath());
+  }
+
+  private boolean consume(int routeIndex, RateLimitProperties.Route route, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+    long now = System.nanoTime();
+    TokenBucket bucket = buckets.computeIfAbsent(routeIndex + "|" + clientKey(request),
+      key -> new TokenBucket(route.getCapacity(), route.getRefillPerSecond(), now));
+    TokenBucket.Probe probe = bucket.tryConsume(now);
+
+    response.setHeader("RateLimit-Limit", String.valueOf(route.getCapacity()));
+    response.setHeader("RateLimit-Remaining", String.valueOf(probe.getRemaining()));
+    response.setHeader("RateLimit-Reset", String.valueOf(probe.getReset()));
+    if (!probe.isAllowed()) {
+      response.setHeader("Retry-After", String.valueOf(probe.getRetryAfter()));
+      response.sendError(TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+    }
+    return probe.isAllowed();
+  }
+
+  private String clientKey(HttpServletRequest request) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal) {
+      return "user:" + ((UserPrincipal) authentication.getPrincipal()).getUserId();
+    }
+    return "ip:" + request.getRemoteAddr();
+  }
+
+  @Scheduled(fixedDelayString = "${rate-limit.idle-eviction:600000}")
+  public void evictIdle() {
+    long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(properties.getIdleEviction());
+    buckets.values().removeIf(bucket -> bucket.lastUsedNanos() - idleSince < 0);
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.springredditclone.security;
+
+import lombok.Value;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A token bucket whose whole state is one immutable snapshot swapped by compare-and-set, so concurrent requests
+ * from the same client never block each other.
+ * */
+class TokenBucket {
+  private final int capacity;
+  private final double tokensPerNano;
+  private final AtomicReference<State> state;
+
+  TokenBucket(int capacity, double refillPerSecond, long nowNanos) {
+    this.capacity = capacity;
+    this.tokensPerNano = refillPerSecond / 1_000_000_000d;
+    this.state = new AtomicReference<>(new State(capacity, nowNanos));
+  }
+
+  Probe tryConsume(long nowNanos) {
+    while (true) {
+      State current = state.get();
+      double tokens = Math.min(capacity, current.getTokens() + (nowNanos - current.getUpdatedAt()) * tokensPerNano);
+      boolean allowed = tokens >= 1;
+      State next = new State(allowed ? tokens - 1 : tokens, Math.max(nowNanos, current.getUpdatedAt()));
+      if (state.compareAndSet(current, next)) {
+        return new Probe(allowed, (int) next.getTokens(), secondsUntil(1, next.getTokens()),
+          secondsUntil(capacity, next.getTokens()));
+      }
+    }
+  }
+
+  long lastUsedNanos() {
+    return state.get().getUpdatedAt();
+  }
+
+  private long secondsUntil(double target, double tokens) {
+    if (tokens >= target) {
+      return 0;
+    }
+    return (long) Math.ceil((target - tokens) / tokensPerNano / 1_000_000_000d);
+  }
+
+  @Value
+  private static class State {
+    double tokens;
+    long updatedAt;
+  }
+
+  @Value
+  static class Probe {
+    boolean allowed;
+    int remaining;
+    /** Seconds until the next request would be allowed. */
+    long retryAfter;
+    /** Seconds until the bucket is full again. */
+    long reset;
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.springredditclone.security;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * The authenticated user as carried by the access token. Besides the username it holds the user's id, so services
+ * can reference the user row without selecting it.
+ * */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class UserPrincipal extends User {
+  private final Long userId;
+
+  public UserPrincipal(Long userId, String username, String password, boolean enabled,
+                       Collection<? extends GrantedAuthority> authorities) {
+    super(username, password, enabled, true, true, true, authorities);
+    this.userId = userId;
+  }
+}
@@ -0,0 +1,67 @@
+package com.example.springredditclone.security;
+
+import com.example.springredditclone.util.TokenHash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the user resolved for an already verified JWT, keyed by the SHA-256 of the token. An entry lives for
+ * at most jwt.cache.ttl and never past the token's own expiry, so a hit costs a hash and a map lookup instead of
+ * a signature check and a user query.
+ * */
+@Component
+public class VerifiedTokenCache {
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final long ttlMillis;
+  private final int maxEntries;
+
+  public VerifiedTokenCache(@Value("${jwt.cache.ttl:60000}") long ttlMillis,
+                            @Value("${jwt.cache.max-entries:10000}") int maxEntries) {
+    this.ttlMillis = ttlMillis;
+    this.maxEntries = maxEntries;
+  }
+
+  public UserDetails get(String token) {
+    String key = TokenHash.of(token);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.getExpiresAt().isBefore(Instant.now())) {
+      entries.remove(key, entry);
+      return null;
+    }
+    return entry.getUserDetails();
+  }
+
+  public void put(String token, UserDetails userDetails, Instant tokenExpiresAt) {
+    if (entries.size() >= maxEntries) {
+      evictExpired();
+      if (entries.size() >= maxEntries) {
+        // Full of live entries: skip caching rather than grow past the bound
+        return;
+      }
+    }
+    Instant ttlExpiry = Instant.now().plusMillis(ttlMillis);
+    Instant expiresAt = tokenExpiresAt.isBefore(ttlExpiry) ? tokenExpiresAt : ttlExpiry;
+    entries.put(TokenHash.of(token), new Entry(userDetails, expiresAt));
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.cache.ttl:60000}")
+  public void evictExpired() {
+    Instant now = Instant.now();
+    entries.values().removeIf(entry -> entry.getExpiresAt().isBefore(now));
+  }
+
+  @lombok.Value
+  private static class Entry {
+    UserDetails userDetails;
+    Instant expiresAt;
+  }
+}
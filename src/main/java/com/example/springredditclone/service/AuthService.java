@@ -1,8 +1,9 @@
 package com.example.springredditclone.service;
 
 import com.example.springredditclone.dto.RefreshTokenRequest;
-import com.example.springredditclone.exception.UsernameNotFoundException;
 import com.example.springredditclone.security.JwtProvider;
+import com.example.springredditclone.security.LoginAttemptLimiter;
+import com.example.springredditclone.security.UserPrincipal;
 
 
 import com.example.springredditclone.dto.AuthenticationResponse;
@@ -20,6 +21,7 @@ import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -44,6 +46,7 @@ public class AuthService {
   private final MailContentBuilder mailContentBuilder;
   private final MailService mailService;
   private final RefreshTokenService refreshTokenService;
+  private final LoginAttemptLimiter loginAttemptLimiter;
 
   @Transactional
   public void signup(RegisterRequest registerRequest) {
@@ -58,10 +61,9 @@ public class AuthService {
 
     String token = generateVerificationToken(user);
 
-    String message = mailContentBuilder.build("Thank you for signing up to Spring Reddit, please click on the below url to activate your account : "
-      + ACTIVATION_EMAIL + "/" + token);
+    String message = mailContentBuilder.buildActivationEmail(ACTIVATION_EMAIL + "/" + token);
 
-    mailService.sendMail(new NotificationEmail("Please Activate your account", user.getEmail(), message));
+    mailService.queueMail(new NotificationEmail("Please Activate your account", user.getEmail(), message));
 
   }
 
@@ -79,30 +81,48 @@ public class AuthService {
     return this.passwordEncoder.encode(password);
   }
 
-  public AuthenticationResponse login(LoginRequest loginRequest) {
-    Authentication authenticate = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(),
-      loginRequest.getPassword()));
+  /**
+   * Accounts and addresses with too many recent failures are refused before the password is hashed.
+   * */
+  public AuthenticationResponse login(LoginRequest loginRequest, String remoteAddress) {
+    loginAttemptLimiter.checkAllowed(loginRequest.getUsername(), remoteAddress);
+    Authentication authenticate;
+    try {
+      authenticate = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(),
+        loginRequest.getPassword()));
+    } catch (AuthenticationException e) {
+      loginAttemptLimiter.recordFailure(loginRequest.getUsername(), remoteAddress);
+      throw e;
+    }
+    loginAttemptLimiter.recordSuccess(loginRequest.getUsername());
 
     // Hold security context, determine who is the current user, whether it is verified and what access it has. By default
     // use Threadlocal strategy to store credentials. When user logout, clean the user credentials on current thread.
     SecurityContextHolder.getContext().setAuthentication(authenticate);
     String token = jwtProvider.generateToken(authenticate);
+    UserPrincipal principal = (UserPrincipal) authenticate.getPrincipal();
     return AuthenticationResponse.builder()
       .authenticationToken(token)
-      .refreshToken(refreshTokenService.generateRefreshToken().getToken())
+      .refreshToken(refreshTokenService.generateRefreshToken(principal.getUserId()))
       .expiresAt(Instant.now().plusMillis(jwtProvider.getJwtExpirationInMillis()))
       .username(loginRequest.getUsername())
       .build();
   }
 
+  /**
+   * Rotates the refresh token: the presented one is spent and a new one is returned with the access token.
+   * */
+  @Transactional
   public AuthenticationResponse refreshToken(RefreshTokenRequest refreshTokenRequest) {
-    refreshTokenService.validateRefreshToken(refreshTokenRequest.getRefreshToken());
-    String token = jwtProvider.generateTokenWithUserName(refreshTokenRequest.getUsername());
+    IssuedRefreshToken refreshToken = refreshTokenService.rotateRefreshToken(refreshTokenRequest.getRefreshToken(),
+      refreshTokenRequest.getUsername());
+    User user = refreshToken.getUser();
+    String token = jwtProvider.generateToken(user.getUserId(), user.getUsername(), user.isEnabled());
     return AuthenticationResponse.builder()
       .authenticationToken(token)
-      .refreshToken(refreshTokenRequest.getRefreshToken())
+      .refreshToken(refreshToken.getToken())
       .expiresAt(Instant.now().plusMillis(jwtProvider.getJwtExpirationInMillis()))
-      .username(refreshTokenRequest.getUsername())
+      .username(user.getUsername())
       .build();
   }
 
@@ -125,11 +145,23 @@ public class AuthService {
     userRepository.save(user);
   }
 
-  @Transactional(readOnly = true)
+  /**
+   * A reference to the current user built from the id in the access token. No query runs until a field other than
+   * the id is read, so use it to set associations rather than to read the user's details.
+   * */
   User getCurrentUser() {
-    org.springframework.security.core.userdetails.User principal =
-      (org.springframework.security.core.userdetails.User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-    return userRepository.findByUsername(principal.getUsername())
-      .orElseThrow(() -> new UsernameNotFoundException("User name not found - " + principal.getUsername()));
+    return userRepository.getOne(getCurrentUserId());
+  }
+
+  Long getCurrentUserId() {
+    return getCurrentPrincipal().getUserId();
+  }
+
+  String getCurrentUsername() {
+    return getCurrentPrincipal().getUsername();
+  }
+
+  private UserPrincipal getCurrentPrincipal() {
+    return (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
   }
 }
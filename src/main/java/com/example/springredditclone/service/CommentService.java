@@ -1,6 +1,7 @@
 package com.example.springredditclone.service;
 
 import com.example.springredditclone.dto.CommentsDto;
+import com.example.springredditclone.dto.CursorPage;
 import com.example.springredditclone.exception.SpringRedditException;
 import com.example.springredditclone.mapper.CommentMapper;
 import com.example.springredditclone.model.Comment;
@@ -10,12 +11,20 @@ import com.example.springredditclone.model.User;
 import com.example.springredditclone.repository.CommentRepository;
 import com.example.springredditclone.repository.PostRepository;
 import com.example.springredditclone.repository.UserRepository;
+import com.example.springredditclone.util.CommentPath;
+import com.example.springredditclone.util.PageCursor;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
+
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
 import static java.util.stream.Collectors.toList;
 
 
@@ -25,6 +34,9 @@ import static java.util.stream.Collectors.toList;
 @Transactional
 public class CommentService {
   private static final String POST_URL = "";
+  private static final int MAX_THREADS = 50;
+  // Upper bound on comments returned by one thread page, however bushy the threads are
+  static final int MAX_THREAD_NODES = 500;
   private final PostRepository postRepository;
   private final UserRepository userRepository;
   private final AuthService authService;
@@ -36,30 +48,140 @@ public class CommentService {
   public void save(CommentsDto commentsDto) {
     Post post = postRepository.findById(commentsDto.getPostId())
       .orElseThrow(() -> new SpringRedditException(commentsDto.getPostId().toString()));
-    Comment comment = commentMapper.map(commentsDto, post, authService.getCurrentUser());
+    Comment parent = commentsDto.getParentId() == null ? null : findParent(commentsDto.getParentId(), post);
+    User author = authService.getCurrentUser();
+    Comment comment = commentMapper.map(commentsDto, post, author);
+    comment.setParent(parent);
+    comment.setDepth(parent == null ? 0 : parent.getDepth() + 1);
+    // The parent has to be set first: the id generator builds the path from it, see CommentIdGenerator
     commentRepository.save(comment);
+    postRepository.incrementCommentCount(post.getPostId());
+    if (parent != null) {
+      commentRepository.incrementReplyCount(parent.getId());
+    }
+
+    sendCommentNotification(authService.getCurrentUsername(), post.getUser());
+  }
+
+  private Comment findParent(Long parentId, Post post) {
+    Comment parent = commentRepository.findById(parentId)
+      .orElseThrow(() -> new SpringRedditException("No comment found with ID - " + parentId));
+    if (!parent.getPost().getPostId().equals(post.getPostId())) {
+      throw new SpringRedditException("Comment " + parentId + " does not belong to post " + post.getPostId());
+    }
+    if (parent.getDepth() >= CommentPath.MAX_DEPTH) {
+      throw new SpringRedditException("Maximum reply depth reached for comment " + parentId);
+    }
+    return parent;
+  }
+
+  private void sendCommentNotification(String author, User postOwner) {
+    String message = mailContentBuilder.buildCommentNotification(author, POST_URL);
+    mailService.queueMail(new NotificationEmail(author + " Commented on your post", postOwner.getEmail(), message));
+  }
+
+  @Transactional(readOnly = true)
+  public CursorPage<CommentsDto> getAllCommentsForPost(Long postId, String after, int limit) {
+    Pageable page = PageCursor.pageOf(limit);
+    Slice<CommentsDto> comments;
+    if (after == null) {
+      comments = commentRepository.findDtosByPost(postId, page);
+    } else {
+      PageCursor cursor = PageCursor.decode(after);
+      comments = commentRepository.findDtosByPostAfter(postId, cursor.getCreatedDate(), cursor.getId(), page);
+    }
+    // Only an empty first page needs to tell "no comments yet" apart from "no such post"
+    if (after == null && !comments.hasContent() && !postRepository.existsById(postId)) {
+      throw new SpringRedditException(postId.toString());
+    }
+    return toPage(comments);
+  }
+
+  @Transactional(readOnly = true)
+  public CursorPage<CommentsDto> getAllCommentsForUser(String userName, String after, int limit) {
+    Pageable page = PageCursor.pageOf(limit);
+    Slice<CommentsDto> comments;
+    if (after == null) {
+      comments = commentRepository.findDtosByUsername(userName, page);
+    } else {
+      PageCursor cursor = PageCursor.decode(after);
+      comments = commentRepository.findDtosByUsernameBefore(userName, cursor.getCreatedDate(), cursor.getId(), page);
+    }
+    if (after == null && !comments.hasContent() && !userRepository.findByUsername(userName).isPresent()) {
+      throw new SpringRedditException(userName);
+    }
+    return toPage(comments);
+  }
 
-    String message = mailContentBuilder.build(post.getUser().getUsername() + " posted a comment on your post." + POST_URL);
-    sendCommentNotification(message, post.getUser());
+  private CursorPage<CommentsDto> toPage(Slice<CommentsDto> slice) {
+    List<CommentsDto> comments = slice.getContent();
+    String next = null;
+    if (slice.hasNext()) {
+      CommentsDto last = comments.get(comments.size() - 1);
+      next = new PageCursor(last.getCreatedDate(), last.getId()).encode();
+    }
+    return new CursorPage<>(comments, next);
   }
 
-  private void sendCommentNotification(String message, User user) {
-    mailService.sendMail(new NotificationEmail(user.getUsername() + " Commented on your post", user.getEmail(), message));
+  /**
+   * The next page of top-level threads of a post, each expanded down to the given depth. Branches cut off by the
+   * depth limit show a replyCount larger than the replies returned and can be expanded with getReplies.
+   *
+   * The cursor is the path of the last comment returned, and the next page resumes right after it in thread order.
+   * So when the node budget cuts a thread short, the next page starts with the rest of that thread before moving
+   * on to the following threads.
+   * */
+  @Transactional(readOnly = true)
+  public CursorPage<CommentsDto> getThreads(Long postId, String after, int threads, int depth) {
+    int threadCount = Math.max(1, Math.min(threads, MAX_THREADS));
+    String afterPath = after == null ? "" : CommentPath.decodeCursor(after);
+    List<Comment> roots = commentRepository.findRoots(postId, afterPath, PageRequest.of(0, threadCount + 1));
+    boolean moreThreads = roots.size() > threadCount;
+    if (moreThreads) {
+      roots = roots.subList(0, threadCount);
+    }
+    String toPath;
+    if (!roots.isEmpty()) {
+      toPath = CommentPath.subtreeEnd(roots.get(roots.size() - 1).getPath());
+    } else if (!afterPath.isEmpty()) {
+      // Only the rest of a thread cut short on the previous page is left
+      toPath = CommentPath.subtreeEnd(CommentPath.rootOf(afterPath));
+    } else {
+      return new CursorPage<>(Collections.emptyList(), null);
+    }
+    List<Comment> comments = commentRepository.findPathRange(postId, afterPath, toPath, clampDepth(depth),
+      PageRequest.of(0, MAX_THREAD_NODES + 1));
+    boolean truncated = comments.size() > MAX_THREAD_NODES;
+    if (truncated) {
+      comments = comments.subList(0, MAX_THREAD_NODES);
+    }
+    String next = null;
+    if ((truncated || moreThreads) && !comments.isEmpty()) {
+      next = CommentPath.encodeCursor(comments.get(comments.size() - 1).getPath());
+    }
+    return new CursorPage<>(comments.stream().map(commentMapper::mapToDto).collect(toList()), next);
   }
 
-  public List<CommentsDto> getAllCommentsForPost(Long postId) {
-    Post post = postRepository.findById(postId).orElseThrow(() -> new SpringRedditException(postId.toString()));
-    return commentRepository.findByPost(post)
-      .stream()
-      .map(commentMapper::mapToDto).collect(toList());
+  /**
+   * "Load more" for one branch: the replies below a comment in thread order, down to the given depth below it.
+   * */
+  @Transactional(readOnly = true)
+  public CursorPage<CommentsDto> getReplies(Long commentId, String after, int depth, int limit) {
+    Comment parent = commentRepository.findById(commentId)
+      .orElseThrow(() -> new SpringRedditException("No comment found with ID - " + commentId));
+    int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    String afterPath = after == null ? parent.getPath() : CommentPath.decodeCursor(after);
+    List<Comment> replies = commentRepository.findPathRange(parent.getPost().getPostId(), afterPath,
+      CommentPath.subtreeEnd(parent.getPath()), parent.getDepth() + clampDepth(depth), PageRequest.of(0, pageSize + 1));
+    String next = null;
+    if (replies.size() > pageSize) {
+      replies = replies.subList(0, pageSize);
+      next = CommentPath.encodeCursor(replies.get(pageSize - 1).getPath());
+    }
+    return new CursorPage<>(replies.stream().map(commentMapper::mapToDto).collect(toList()), next);
   }
 
-  public List<CommentsDto> getAllCommentsForUser(String userName) {
-    User user = userRepository.findByUsername(userName)
-      .orElseThrow(() -> new SpringRedditException(userName));
-    return commentRepository.findAllByUser(user)
-      .stream()
-      .map(commentMapper::mapToDto)
-      .collect(toList());
+  private int clampDepth(int depth) {
+    return Math.max(0, Math.min(depth, CommentPath.MAX_DEPTH));
   }
 }
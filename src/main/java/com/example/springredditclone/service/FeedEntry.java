@@ -0,0 +1,12 @@
+package com.example.springredditclone.service;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+class FeedEntry {
+  Long postId;
+  Long subredditId;
+  Instant createdDate;
+}
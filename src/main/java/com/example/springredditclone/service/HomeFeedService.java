@@ -0,0 +1,303 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.dto.CursorPage;
+import com.example.springredditclone.event.PostCreatedEvent;
+import com.example.springredditclone.event.SubscriptionChangedEvent;
+import com.example.springredditclone.repository.PostRankingView;
+import com.example.springredditclone.repository.PostRepository;
+import com.example.springredditclone.repository.SubredditSubscriberCount;
+import com.example.springredditclone.repository.SubscriptionRepository;
+import com.example.springredditclone.util.PageCursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Home feeds for users who read them. A user who opens the home feed gets a timeline of the newest posts from the
+ * subreddits they follow, and new posts are pushed into the timelines of their subreddit's active subscribers as
+ * they commit (fan-out on write). Subreddits with at least feed.home.fan-out-limit subscribers are not pushed;
+ * their newest posts are kept once per subreddit and merged into the page when it is read (fan-out on read).
+ * Reading a page therefore walks one timeline plus the few large subreddits the user follows, however many
+ * subreddits that is in total. Timelines of users who stop reading are dropped after feed.home.idle-timeout.
+ * */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HomeFeedService {
+  private static final int TIMELINE_SIZE = 500;
+  private static final int RECENT_POSTS_SIZE = 500;
+
+  private final PostRepository postRepository;
+  private final SubscriptionRepository subscriptionRepository;
+
+  @Value("${feed.home.fan-out-limit}")
+  private long fanOutLimit;
+  @Value("${feed.home.idle-timeout}")
+  private long idleTimeoutMillis;
+
+  private final ConcurrentMap<Long, Long> subscriberCounts = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Long, Timeline> timelines = new ConcurrentHashMap<>();
+  // Fan-out targets: for each subreddit pushed on write, the users whose timelines are in memory
+  private final ConcurrentMap<Long, Set<Long>> activeSubscribers = new ConcurrentHashMap<>();
+  // Newest posts of the subreddits merged on read
+  private final ConcurrentMap<Long, RecentPosts> recentBySubreddit = new ConcurrentHashMap<>();
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    for (SubredditSubscriberCount count : subscriptionRepository.countSubscribers()) {
+      subscriberCounts.put(count.getSubredditId(), count.getSubscribers());
+    }
+    log.info("Loaded subscriber counts for {} subreddits", subscriberCounts.size());
+  }
+
+  /**
+   * The next page of post ids in the user's home feed, newest first, or empty when the page reaches past the posts
+   * held in memory and has to be read from the database instead.
+   * */
+  public Optional<CursorPage<Long>> page(Long userId, String after, int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    Timeline timeline = timelineOf(userId);
+    FeedEntry from = null;
+    if (after != null) {
+      PageCursor cursor = PageCursor.decode(after);
+      from = new FeedEntry(cursor.getId(), null, cursor.getCreatedDate());
+    }
+
+    List<Iterator<FeedEntry>> sources = new ArrayList<>();
+    FeedEntry horizon = horizonOf(null, timeline.getPosts());
+    sources.add(timeline.getPosts().after(from));
+    for (Long subredditId : timeline.getMergedOnRead()) {
+      RecentPosts recent = recentPostsOf(subredditId);
+      horizon = horizonOf(horizon, recent);
+      sources.add(recent.after(from));
+    }
+
+    List<FeedEntry> merged = merge(sources, size + 1, horizon);
+    if (merged.size() <= size && horizon != null) {
+      // Short of a full page, and older posts were left out of at least one source
+      return Optional.empty();
+    }
+    String next = null;
+    if (merged.size() > size) {
+      FeedEntry last = merged.get(size - 1);
+      next = new PageCursor(last.getCreatedDate(), last.getPostId()).encode();
+      merged = merged.subList(0, size);
+    }
+    return Optional.of(new CursorPage<>(merged.stream().map(FeedEntry::getPostId).collect(toList()), next));
+  }
+
+  public Collection<Long> subscribedSubredditIds(Long userId) {
+    return Collections.unmodifiableSet(timelineOf(userId).getSubredditIds());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPostCreated(PostCreatedEvent event) {
+    FeedEntry entry = new FeedEntry(event.getPostId(), event.getSubredditId(), event.getCreatedDate());
+    RecentPosts recent = recentBySubreddit.get(event.getSubredditId());
+    if (recent != null) {
+      recent.add(entry);
+    }
+    Set<Long> users = activeSubscribers.get(event.getSubredditId());
+    if (users != null) {
+      for (Long userId : users) {
+        Timeline timeline = timelines.get(userId);
+        if (timeline != null) {
+          timeline.getPosts().add(entry);
+        }
+      }
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+    Long subredditId = event.getSubredditId();
+    subscriberCounts.merge(subredditId, event.isSubscribed() ? 1L : -1L, Long::sum);
+    Timeline timeline = timelines.get(event.getUserId());
+    if (timeline == null) {
+      return;
+    }
+    synchronized (timeline) {
+      if (event.isSubscribed()) {
+        if (timeline.getSubredditIds().add(subredditId)) {
+          follow(timeline, subredditId);
+          if (!timeline.getMergedOnRead().contains(subredditId)) {
+            addRecentPosts(timeline, Collections.singletonList(subredditId));
+          }
+        }
+      } else if (timeline.getSubredditIds().remove(subredditId)) {
+        timeline.getMergedOnRead().remove(subredditId);
+        unfollow(timeline.getUserId(), subredditId);
+        timeline.getPosts().removeIf(entry -> entry.getSubredditId().equals(subredditId));
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${feed.home.idle-timeout}")
+  public void evictIdle() {
+    long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+    for (Timeline timeline : timelines.values()) {
+      if (timeline.getLastReadMillis() < idleSince && timelines.remove(timeline.getUserId(), timeline)) {
+        for (Long subredditId : timeline.getSubredditIds()) {
+          unfollow(timeline.getUserId(), subredditId);
+        }
+      }
+    }
+  }
+
+  private Timeline timelineOf(Long userId) {
+    Timeline timeline = timelines.get(userId);
+    if (timeline == null) {
+      Timeline created = new Timeline(userId, new RecentPosts(TIMELINE_SIZE));
+      timeline = timelines.putIfAbsent(userId, created);
+      if (timeline == null) {
+        timeline = created;
+      }
+    }
+    timeline.setLastReadMillis(System.currentTimeMillis());
+    synchronized (timeline) {
+      if (!timeline.isSeeded()) {
+        seed(timeline);
+      }
+    }
+    return timeline;
+  }
+
+  /**
+   * Registers the timeline for fan-out before reading the newest posts, so a post committed in between is pushed
+   * rather than missed.
+   * */
+  private void seed(Timeline timeline) {
+    List<Long> pushed = new ArrayList<>();
+    for (Long subredditId : subscriptionRepository.findSubredditIds(timeline.getUserId())) {
+      timeline.getSubredditIds().add(subredditId);
+      follow(timeline, subredditId);
+      if (!timeline.getMergedOnRead().contains(subredditId)) {
+        pushed.add(subredditId);
+      }
+    }
+    addRecentPosts(timeline, pushed);
+    timeline.setSeeded(true);
+  }
+
+  private void follow(Timeline timeline, Long subredditId) {
+    if (subscriberCounts.getOrDefault(subredditId, 0L) >= fanOutLimit) {
+      timeline.getMergedOnRead().add(subredditId);
+    } else {
+      activeSubscribers.computeIfAbsent(subredditId, id -> ConcurrentHashMap.newKeySet()).add(timeline.getUserId());
+    }
+  }
+
+  private void unfollow(Long userId, Long subredditId) {
+    Set<Long> users = activeSubscribers.get(subredditId);
+    if (users != null) {
+      users.remove(userId);
+    }
+  }
+
+  private void addRecentPosts(Timeline timeline, List<Long> subredditIds) {
+    if (subredditIds.isEmpty()) {
+      return;
+    }
+    List<PostRankingView> views = postRepository.findRecentViews(subredditIds, PageRequest.of(0, TIMELINE_SIZE));
+    views.forEach(view -> timeline.getPosts().add(toEntry(view)));
+    if (views.size() == TIMELINE_SIZE) {
+      timeline.getPosts().markTruncated();
+    }
+  }
+
+  private RecentPosts recentPostsOf(Long subredditId) {
+    RecentPosts recent = recentBySubreddit.get(subredditId);
+    if (recent != null) {
+      return recent;
+    }
+    RecentPosts loaded = new RecentPosts(RECENT_POSTS_SIZE);
+    List<PostRankingView> views = postRepository.findRecentViews(Collections.singletonList(subredditId),
+      PageRequest.of(0, RECENT_POSTS_SIZE));
+    views.forEach(view -> loaded.add(toEntry(view)));
+    if (views.size() == RECENT_POSTS_SIZE) {
+      loaded.markTruncated();
+    }
+    recent = recentBySubreddit.putIfAbsent(subredditId, loaded);
+    return recent == null ? loaded : recent;
+  }
+
+  private static FeedEntry toEntry(PostRankingView view) {
+    return new FeedEntry(view.getPostId(), view.getSubredditId(), view.getCreatedDate());
+  }
+
+  // The newer of two horizons: below it, some source may be missing posts
+  private static FeedEntry horizonOf(FeedEntry current, RecentPosts source) {
+    FeedEntry horizon = source.horizon();
+    if (horizon == null) {
+      return current;
+    }
+    return current == null || RecentPosts.NEWEST_FIRST.compare(horizon, current) < 0 ? horizon : current;
+  }
+
+  /**
+   * k-way merge of newest-first sources, stopping at max entries or at the first entry past the horizon.
+   * */
+  private static List<FeedEntry> merge(List<Iterator<FeedEntry>> sources, int max, FeedEntry horizon) {
+    PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+      (left, right) -> RecentPosts.NEWEST_FIRST.compare(left.entry, right.entry));
+    for (Iterator<FeedEntry> source : sources) {
+      if (source.hasNext()) {
+        heads.add(new Head(source.next(), source));
+      }
+    }
+    List<FeedEntry> merged = new ArrayList<>(max);
+    while (merged.size() < max && !heads.isEmpty()) {
+      Head head = heads.poll();
+      if (horizon != null && RecentPosts.NEWEST_FIRST.compare(head.entry, horizon) > 0) {
+        break;
+      }
+      merged.add(head.entry);
+      if (head.source.hasNext()) {
+        heads.add(new Head(head.source.next(), head.source));
+      }
+    }
+    return merged;
+  }
+
+  private static class Head {
+    private final FeedEntry entry;
+    private final Iterator<FeedEntry> source;
+
+    Head(FeedEntry entry, Iterator<FeedEntry> source) {
+      this.entry = entry;
+      this.source = source;
+    }
+  }
+
+  @lombok.Getter
+  @lombok.Setter
+  @lombok.RequiredArgsConstructor
+  private static class Timeline {
+    private final Long userId;
+    private final RecentPosts posts;
+    private final Set<Long> subredditIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> mergedOnRead = ConcurrentHashMap.newKeySet();
+    private volatile long lastReadMillis;
+    private volatile boolean seeded;
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.model.User;
+import lombok.Value;
+
+/**
+ * A freshly issued refresh token. The raw token only exists here, on its way to the client.
+ * */
+@Value
+class IssuedRefreshToken {
+  String token;
+  User user;
+}
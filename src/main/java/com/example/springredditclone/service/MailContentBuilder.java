@@ -5,14 +5,38 @@ import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
+import java.io.StringWriter;
+
+/**
+ * Renders the HTML body of each kind of notification email exactly once, when the email is queued. Thymeleaf keeps
+ * the parsed templates in its cache and every thread renders into its own reused buffer.
+ * */
 @Service
 @AllArgsConstructor
 public class MailContentBuilder {
+    private static final String ACTIVATION_TEMPLATE = "activationEmail";
+    private static final String COMMENT_NOTIFICATION_TEMPLATE = "commentNotification";
+    private static final ThreadLocal<StringWriter> BUFFER = ThreadLocal.withInitial(() -> new StringWriter(1024));
+
     private final TemplateEngine templateEngine;
 
-    String build(String message) {
+    String buildActivationEmail(String activationUrl) {
         Context context = new Context();
-        context.setVariable("message", message);
-        return templateEngine.process("mailTemplate", context);
+        context.setVariable("activationUrl", activationUrl);
+        return render(ACTIVATION_TEMPLATE, context);
+    }
+
+    String buildCommentNotification(String commenter, String postUrl) {
+        Context context = new Context();
+        context.setVariable("commenter", commenter);
+        context.setVariable("postUrl", postUrl);
+        return render(COMMENT_NOTIFICATION_TEMPLATE, context);
+    }
+
+    private String render(String template, Context context) {
+        StringWriter buffer = BUFFER.get();
+        buffer.getBuffer().setLength(0);
+        templateEngine.process(template, context, buffer);
+        return buffer.toString();
     }
 }
@@ -0,0 +1,151 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.model.OutboxEmail;
+import com.example.springredditclone.model.OutboxStatus;
+import com.example.springredditclone.repository.OutboxEmailRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains the mail outbox. Due rows are claimed in batches and each batch is handed to the bounded mail pool, which
+ * sends it over a single SMTP connection. Failed messages are retried with exponential backoff until MAX_ATTEMPTS,
+ * after which they are kept as FAILED for inspection.
+ * */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailDispatcher {
+  private static final String FROM = "springreddit@email.com";
+  private static final int BATCH_SIZE = 50;
+  static final int MAX_ATTEMPTS = 8;
+  private static final int MAX_ERROR_LENGTH = 255;
+  // A claimed row is skipped by other polls until this lease runs out, which also recovers rows of a crashed node
+  static final Duration CLAIM_LEASE = Duration.ofMinutes(5);
+  static final Duration INITIAL_BACKOFF = Duration.ofSeconds(30);
+  private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+  private final OutboxEmailRepository outboxEmailRepository;
+  private final JavaMailSender mailSender;
+  private final TransactionTemplate transactionTemplate;
+  private final ThreadPoolTaskExecutor mailExecutor;
+
+  @Scheduled(fixedDelayString = "${mail.outbox.poll-interval:2000}")
+  public void dispatch() {
+    while (mailExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() > 0) {
+      List<OutboxEmail> batch = claimBatch();
+      if (batch.isEmpty()) {
+        return;
+      }
+      mailExecutor.execute(() -> send(batch));
+      if (batch.size() < BATCH_SIZE) {
+        return;
+      }
+    }
+  }
+
+  private List<OutboxEmail> claimBatch() {
+    return transactionTemplate.execute(status -> {
+      Instant now = Instant.now();
+      List<OutboxEmail> due = outboxEmailRepository.findByStatusAndNextAttemptAtLessThanEqualOrderById(
+        OutboxStatus.PENDING, now, PageRequest.of(0, BATCH_SIZE));
+      due.forEach(email -> email.setNextAttemptAt(now.plus(CLAIM_LEASE)));
+      return due;
+    });
+  }
+
+  private void send(List<OutboxEmail> batch) {
+    // Identity keys: the entities are mutated while the map is in use
+    Map<OutboxEmail, Exception> failures = new IdentityHashMap<>();
+    List<MimeMessage> messages = new ArrayList<>(batch.size());
+    List<OutboxEmail> prepared = new ArrayList<>(batch.size());
+    for (OutboxEmail email : batch) {
+      try {
+        messages.add(toMimeMessage(email));
+        prepared.add(email);
+      } catch (MessagingException e) {
+        failures.put(email, e);
+      }
+    }
+    if (!messages.isEmpty()) {
+      try {
+        // JavaMailSenderImpl sends the whole array over one connection
+        mailSender.send(messages.toArray(new MimeMessage[0]));
+      } catch (MailSendException e) {
+        Map<Object, Exception> failedMessages = e.getFailedMessages();
+        for (int i = 0; i < messages.size(); i++) {
+          Exception failure = failedMessages.get(messages.get(i));
+          if (failure != null) {
+            failures.put(prepared.get(i), failure);
+          }
+        }
+      } catch (MailException e) {
+        prepared.forEach(email -> failures.put(email, e));
+      }
+    }
+    complete(batch, failures);
+  }
+
+  private MimeMessage toMimeMessage(OutboxEmail email) throws MessagingException {
+    MimeMessage mimeMessage = mailSender.createMimeMessage();
+    MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage);
+    messageHelper.setFrom(FROM);
+    messageHelper.setTo(email.getRecipient());
+    messageHelper.setSubject(email.getSubject());
+    // The body was rendered once by MailContentBuilder when the email was queued
+    messageHelper.setText(email.getBody(), true);
+    return mimeMessage;
+  }
+
+  private void complete(List<OutboxEmail> batch, Map<OutboxEmail, Exception> failures) {
+    List<OutboxEmail> sent = new ArrayList<>(batch.size());
+    Instant now = Instant.now();
+    for (OutboxEmail email : batch) {
+      Exception failure = failures.get(email);
+      if (failure == null) {
+        sent.add(email);
+      } else {
+        scheduleRetry(email, failure, now);
+      }
+    }
+    transactionTemplate.execute(status -> {
+      if (!sent.isEmpty()) {
+        outboxEmailRepository.deleteInBatch(sent);
+      }
+      outboxEmailRepository.saveAll(failures.keySet());
+      return null;
+    });
+    log.info("Sent {} notification emails, {} failed", sent.size(), failures.size());
+  }
+
+  private void scheduleRetry(OutboxEmail email, Exception failure, Instant now) {
+    int attempts = email.getAttempts() + 1;
+    email.setAttempts(attempts);
+    String error = String.valueOf(failure.getMessage());
+    email.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+    if (attempts >= MAX_ATTEMPTS) {
+      email.setStatus(OutboxStatus.FAILED);
+      log.error("Giving up on email to {} after {} attempts", email.getRecipient(), attempts, failure);
+      return;
+    }
+    Duration backoff = INITIAL_BACKOFF.multipliedBy(1L << (attempts - 1));
+    email.setNextAttemptAt(now.plus(backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff));
+  }
+}
@@ -1,37 +1,38 @@
 package com.example.springredditclone.service;
 
-import com.example.springredditclone.exception.SpringRedditException;
 import com.example.springredditclone.model.NotificationEmail;
+import com.example.springredditclone.model.OutboxEmail;
+import com.example.springredditclone.model.OutboxStatus;
+import com.example.springredditclone.repository.OutboxEmailRepository;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.mail.javamail.MimeMessagePreparator;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class MailService {
-    private final JavaMailSender mailSender;
-    private final MailContentBuilder mailContentBuilder;
+    private final OutboxEmailRepository outboxEmailRepository;
 
-    @Async
-    void sendMail(NotificationEmail notificationEmail) {
-        MimeMessagePreparator messagePreparator = mimeMessage -> {
-            MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage);
-            messageHelper.setFrom("springreddit@email.com");
-            messageHelper.setTo(notificationEmail.getRecipient());
-            messageHelper.setSubject(notificationEmail.getSubject());
-            messageHelper.setText(mailContentBuilder.build(notificationEmail.getBody()));
-        };
-        try {
-            mailSender.send(messagePreparator);
-            log.info("Activation email sent!!");
-        } catch (MailException e) {
-            throw new SpringRedditException("Exception occurred when sending mail to " + notificationEmail.getRecipient());
-        }
+    /**
+     * Queues the email in the outbox as part of the caller's transaction, so it is only sent if that transaction
+     * commits. MailDispatcher does the actual sending.
+     * */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queueMail(NotificationEmail notificationEmail) {
+        Instant now = Instant.now();
+        outboxEmailRepository.save(OutboxEmail.builder()
+            .recipient(notificationEmail.getRecipient())
+            .subject(notificationEmail.getSubject())
+            .body(notificationEmail.getBody())
+            .status(OutboxStatus.PENDING)
+            .attempts(0)
+            .nextAttemptAt(now)
+            .createdDate(now)
+            .build());
     }
 }
@@ -0,0 +1,236 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.dto.CursorPage;
+import com.example.springredditclone.event.PostCreatedEvent;
+import com.example.springredditclone.event.VoteCastEvent;
+import com.example.springredditclone.exception.SpringRedditException;
+import com.example.springredditclone.model.PostSort;
+import com.example.springredditclone.model.TimeWindow;
+import com.example.springredditclone.repository.PendingVoteDeltaRepository;
+import com.example.springredditclone.repository.PostRankingView;
+import com.example.springredditclone.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * In-memory ranked indexes for the front page and every subreddit. The indexes are loaded once at startup and then
+ * updated incrementally as posts and votes commit, so a ranked page is a skip list walk rather than a sort.
+ *
+ * The incremental updates only come from this instance. Every redecay pass therefore also re-reads the vote totals
+ * of the indexed posts and picks up posts created through other instances, so all instances converge on the
+ * database within one redecay interval.
+ *
+ * The load is bounded: posts of the last month, which covers every TOP window but ALL, RISING, and the reach of
+ * HOT (a month-old post needs about 10^57 more votes than a new one to outrank it), plus the most voted posts of
+ * all time for TOP/ALL, up to feed.ranking.all-time-size.
+ * */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostRankingService {
+  private static final int LOAD_BATCH_SIZE = 1000;
+  private static final Duration RISING_WINDOW = Duration.ofDays(1);
+  private static final Duration LOAD_HORIZON = Duration.ofDays(30);
+  // How far back a sync looks for new posts beyond the previous sync, for posts whose transaction committed late
+  private static final Duration SYNC_OVERLAP = Duration.ofMinutes(5);
+  // Shared answer for subreddits without posts in the index; never written to
+  private static final RankedIndex EMPTY_INDEX = new RankedIndex();
+  private static final double RISING_DECAY_PER_SECOND = Math.log(2) / Duration.ofHours(1).getSeconds();
+
+  private final PostRepository postRepository;
+  private final PendingVoteDeltaRepository pendingVoteDeltaRepository;
+  private final TransactionTemplate transactionTemplate;
+  @Value("${feed.ranking.all-time-size:1000}")
+  private int allTimeSize;
+
+  private final RankedIndex frontPage = new RankedIndex();
+  private final ConcurrentMap<Long, RankedIndex> bySubreddit = new ConcurrentHashMap<>();
+  // Rising velocities are stored relative to this instant; redecay() moves it forward
+  private Instant decayBase = Instant.now();
+  // Posts created before this (less SYNC_OVERLAP) were read by the last load or sync
+  private volatile Instant syncedAt = Instant.now();
+
+  /**
+   * Runs when the context is refreshed, before the web server accepts requests, so no ranked page is ever served
+   * from a partly loaded index. A failing load fails the startup.
+   * */
+  @EventListener(ContextRefreshedEvent.class)
+  public void load() {
+    Instant now = Instant.now();
+    int loaded = transactionTemplate.execute(status -> {
+      Map<Long, Long> pending = pendingDeltas();
+      int indexed = indexCreatedAfter(now.minus(LOAD_HORIZON), pending);
+      for (PostRankingView view : postRepository.findTopRankingViews(PageRequest.of(0, allTimeSize))) {
+        if (frontPage.get(view.getPostId()) == null) {
+          index(view, pending);
+          indexed++;
+        }
+      }
+      return indexed;
+    });
+    syncedAt = now;
+    log.info("Loaded {} posts into the ranking indexes of {} subreddits", loaded, bySubreddit.size());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPostCreated(PostCreatedEvent event) {
+    index(new RankedPost(event.getPostId(), event.getSubredditId(), event.getCreatedDate().getEpochSecond(), 0, 0d));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onVoteCast(VoteCastEvent event) {
+    RankedPost post = frontPage.get(event.getPostId());
+    if (post == null) {
+      return;
+    }
+    double weight = Math.exp(RISING_DECAY_PER_SECOND * Duration.between(decayBase, Instant.now()).getSeconds());
+    index(post.withVotes(post.getVotes() + event.getDelta())
+      .withVelocity(post.getVelocity() + event.getDelta() * weight));
+  }
+
+  /**
+   * Periodic re-decay pass: ages posts out of the rising and windowed top listings and rebases the rising
+   * velocities so the decay weights stay small. It also syncs the indexes with the database, see syncFromDatabase.
+   * */
+  @Scheduled(fixedDelayString = "${feed.ranking.redecay-interval:60000}")
+  public void redecay() {
+    Map<Long, Integer> votes = syncFromDatabase();
+    synchronized (this) {
+      Instant now = Instant.now();
+      double decay = Math.exp(-RISING_DECAY_PER_SECOND * Duration.between(decayBase, now).getSeconds());
+      Instant risingCutoff = now.minus(RISING_WINDOW);
+      frontPage.redecay(decay, risingCutoff, now);
+      bySubreddit.values().forEach(index -> index.redecay(decay, risingCutoff, now));
+      decayBase = now;
+      // Votes cast through other instances since the last sync count towards rising as if they were cast now
+      votes.forEach((postId, total) -> {
+        RankedPost post = frontPage.get(postId);
+        int missed = post == null ? 0 : total - post.getVotes();
+        if (missed != 0) {
+          index(post.withVotes(total).withVelocity(post.getVelocity() + missed));
+        }
+      });
+    }
+  }
+
+  /**
+   * Indexes the posts created through other instances since the last sync and returns the current vote totals of
+   * all indexed posts, counting the deltas VoteCountBuffer has not flushed yet. Both reads share one transaction,
+   * so under MySQL's default repeatable read a flush that lands in between is seen by neither of them.
+   *
+   * The database is read without holding the index lock, so a vote this instance applies in the meantime is
+   * undone by the totals read before it, and restored by the next sync.
+   * */
+  private Map<Long, Integer> syncFromDatabase() {
+    Instant now = Instant.now();
+    Map<Long, Integer> current = transactionTemplate.execute(status -> {
+      Map<Long, Long> pending = pendingDeltas();
+      indexCreatedAfter(syncedAt.minus(SYNC_OVERLAP), pending);
+      List<Long> postIds = new ArrayList<>(frontPage.postIds());
+      Map<Long, Integer> totals = new HashMap<>(postIds.size());
+      for (int from = 0; from < postIds.size(); from += LOAD_BATCH_SIZE) {
+        List<Long> batch = postIds.subList(from, Math.min(from + LOAD_BATCH_SIZE, postIds.size()));
+        postRepository.findRankingViews(batch).forEach(view -> totals.put(view.getPostId(), votes(view, pending)));
+      }
+      return totals;
+    });
+    syncedAt = now;
+    return current;
+  }
+
+  // Indexes the posts created after the given instant that are not in the index yet, in batches
+  private int indexCreatedAfter(Instant createdAfter, Map<Long, Long> pending) {
+    long afterId = Long.MAX_VALUE;
+    int indexed = 0;
+    List<PostRankingView> batch;
+    do {
+      batch = postRepository.findRankingViewsAfter(createdAfter, afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+      for (PostRankingView view : batch) {
+        if (frontPage.get(view.getPostId()) == null) {
+          index(view, pending);
+          indexed++;
+        }
+        createdAfter = view.getCreatedDate();
+        afterId = view.getPostId();
+      }
+    } while (batch.size() == LOAD_BATCH_SIZE);
+    return indexed;
+  }
+
+  private Map<Long, Long> pendingDeltas() {
+    Map<Long, Long> pending = new HashMap<>();
+    pendingVoteDeltaRepository.sumByPost().forEach(sum -> pending.put(sum.getPostId(), sum.getDelta()));
+    return pending;
+  }
+
+  /**
+   * Returns a page of post ids in ranked order, for the front page when subredditId is null.
+   * */
+  public CursorPage<Long> page(Long subredditId, PostSort sort, TimeWindow window, String after, int limit) {
+    RankedIndex index = subredditId == null ? frontPage : bySubreddit.getOrDefault(subredditId, EMPTY_INDEX);
+    int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<RankedPost> posts = index.page(sort, window, after == null ? null : decodeCursor(after), pageSize);
+    String next = null;
+    if (posts.size() > pageSize) {
+      posts = posts.subList(0, pageSize);
+      next = encodeCursor(posts.get(pageSize - 1));
+    }
+    return new CursorPage<>(posts.stream().map(RankedPost::getPostId).collect(toList()), next);
+  }
+
+  private void index(PostRankingView view, Map<Long, Long> pending) {
+    index(new RankedPost(view.getPostId(), view.getSubredditId(), view.getCreatedDate().getEpochSecond(),
+      votes(view, pending), 0d));
+  }
+
+  private static int votes(PostRankingView view, Map<Long, Long> pending) {
+    long votes = view.getVoteCount() == null ? 0 : view.getVoteCount();
+    return (int) (votes + pending.getOrDefault(view.getPostId(), 0L));
+  }
+
+  private synchronized void index(RankedPost post) {
+    Instant now = Instant.now();
+    Instant risingCutoff = now.minus(RISING_WINDOW);
+    frontPage.put(post, risingCutoff, now);
+    bySubreddit.computeIfAbsent(post.getSubredditId(), id -> new RankedIndex()).put(post, risingCutoff, now);
+  }
+
+  // The cursor carries the whole snapshot of the last entry so the next page can seek straight past it
+  private String encodeCursor(RankedPost post) {
+    String raw = post.getPostId() + ":" + post.getSubredditId() + ":" + post.getCreatedEpochSecond() + ":"
+      + post.getVotes() + ":" + post.getVelocity();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private RankedPost decodeCursor(String cursor) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+      return new RankedPost(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+        Integer.parseInt(parts[3]), Double.parseDouble(parts[4]));
+    } catch (RuntimeException e) {
+      throw new SpringRedditException("Invalid page cursor - " + cursor);
+    }
+  }
+}
@@ -1,24 +1,39 @@
 package com.example.springredditclone.service;
 
+import com.example.springredditclone.dto.CursorPage;
 import com.example.springredditclone.dto.PostRequest;
 import com.example.springredditclone.dto.PostResponse;
+import com.example.springredditclone.event.PostCreatedEvent;
 import com.example.springredditclone.exception.SpringRedditException;
 import com.example.springredditclone.exception.SubredditNotFoundException;
 import com.example.springredditclone.mapper.PostMapper;
 import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.PostSort;
 import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.TimeWindow;
 import com.example.springredditclone.model.User;
 import com.example.springredditclone.repository.PostRepository;
 import com.example.springredditclone.repository.SubredditRepository;
 import com.example.springredditclone.repository.UserRepository;
+import com.example.springredditclone.util.PageCursor;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
+import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 
 @Service
@@ -29,46 +44,122 @@ public class PostService {
 
   private final PostRepository postRepository;
   private final SubredditRepository subredditRepository;
+  private final SubredditDirectory subredditDirectory;
   private final UserRepository userRepository;
   private final AuthService authService;
   private final PostMapper postMapper;
+  private final PostRankingService postRankingService;
+  private final HomeFeedService homeFeedService;
+  private final ApplicationEventPublisher eventPublisher;
 
   public void save(PostRequest postRequest) {
-    Subreddit subreddit = subredditRepository.findByName(postRequest.getSubredditName())
+    Long subredditId = subredditDirectory.findId(postRequest.getSubredditName())
       .orElseThrow(() -> new SubredditNotFoundException(postRequest.getSubredditName()));
-    postRepository.save(postMapper.map(postRequest, subreddit, authService.getCurrentUser()));
+    Subreddit subreddit = subredditRepository.getOne(subredditId);
+    Post post = postRepository.save(postMapper.map(postRequest, subreddit, authService.getCurrentUser()));
+    subredditRepository.incrementPostCount(subredditId);
+    eventPublisher.publishEvent(new PostCreatedEvent(post.getPostId(), subredditId, post.getCreatedDate()));
   }
 
   @Transactional(readOnly = true)
   public PostResponse getPost(Long id) {
-    Post post = postRepository.findById(id)
+    Post post = postRepository.findWithUserAndSubredditByPostId(id)
       .orElseThrow(() -> new SpringRedditException(id.toString()));
     return postMapper.mapToDto(post);
   }
 
   @Transactional(readOnly = true)
-  public List<PostResponse> getAllPosts() {
-    return postRepository.findAll()
-      .stream()
-      .map(postMapper::mapToDto)
-      .collect(toList());
+  public CursorPage<PostResponse> getAllPosts(PostSort sort, TimeWindow window, String after, int limit) {
+    if (isRanked(sort)) {
+      return toRankedPage(postRankingService.page(null, sort, window, after, limit));
+    }
+    Pageable page = PageCursor.pageOf(limit);
+    if (after == null) {
+      return toPage(postRepository.findAllByOrderByCreatedDateDescPostIdDesc(page));
+    }
+    PageCursor cursor = PageCursor.decode(after);
+    return toPage(postRepository.findAllBefore(cursor.getCreatedDate(), cursor.getId(), page));
   }
 
   @Transactional(readOnly = true)
-  public List<PostResponse> getPostsBySubreddit(Long subredditId) {
+  public CursorPage<PostResponse> getPostsBySubreddit(Long subredditId, PostSort sort, TimeWindow window,
+                                                      String after, int limit) {
     Subreddit subreddit = subredditRepository.findById(subredditId)
       .orElseThrow(() -> new SubredditNotFoundException(subredditId.toString()));
-    List<Post> posts = postRepository.findAllBySubreddit(subreddit);
-    return posts.stream().map(postMapper::mapToDto).collect(toList());
+    if (isRanked(sort)) {
+      return toRankedPage(postRankingService.page(subredditId, sort, window, after, limit));
+    }
+    Pageable page = PageCursor.pageOf(limit);
+    if (after == null) {
+      return toPage(postRepository.findBySubredditOrderByCreatedDateDescPostIdDesc(subreddit, page));
+    }
+    PageCursor cursor = PageCursor.decode(after);
+    return toPage(postRepository.findBySubredditBefore(subreddit, cursor.getCreatedDate(), cursor.getId(), page));
   }
 
   @Transactional(readOnly = true)
-  public List<PostResponse> getPostsByUsername(String username) {
+  public CursorPage<PostResponse> getPostsByUsername(String username, String after, int limit) {
     User user = userRepository.findByUsername(username)
       .orElseThrow(() -> new SubredditNotFoundException(username));
-    return postRepository.findByUser(user)
+    Pageable page = PageCursor.pageOf(limit);
+    if (after == null) {
+      return toPage(postRepository.findByUserOrderByCreatedDateDescPostIdDesc(user, page));
+    }
+    PageCursor cursor = PageCursor.decode(after);
+    return toPage(postRepository.findByUserBefore(user, cursor.getCreatedDate(), cursor.getId(), page));
+  }
+
+  /**
+   * Newest posts from the current user's subscriptions. Pages come from the in-memory timelines, and only a reader
+   * who scrolls past what they hold is served by the keyset queries.
+   * */
+  @Transactional(readOnly = true)
+  public CursorPage<PostResponse> getHomeFeed(String after, int limit) {
+    Long userId = authService.getCurrentUserId();
+    Optional<CursorPage<Long>> page = homeFeedService.page(userId, after, limit);
+    if (page.isPresent()) {
+      return toRankedPage(page.get());
+    }
+    Collection<Long> subredditIds = homeFeedService.subscribedSubredditIds(userId);
+    if (subredditIds.isEmpty()) {
+      return new CursorPage<>(Collections.emptyList(), null);
+    }
+    Pageable pageable = PageCursor.pageOf(limit);
+    if (after == null) {
+      return toPage(postRepository.findBySubredditIds(subredditIds, pageable));
+    }
+    PageCursor cursor = PageCursor.decode(after);
+    return toPage(postRepository.findBySubredditIdsBefore(subredditIds, cursor.getCreatedDate(), cursor.getId(), pageable));
+  }
+
+  // NEW is served by the keyset queries; the ranked orders come from the in-memory index
+  private boolean isRanked(PostSort sort) {
+    return sort != PostSort.NEW;
+  }
+
+  private CursorPage<PostResponse> toRankedPage(CursorPage<Long> ranked) {
+    if (ranked.getItems().isEmpty()) {
+      return new CursorPage<>(Collections.emptyList(), null);
+    }
+    Map<Long, Post> postsById = postRepository.findByPostIdIn(ranked.getItems())
       .stream()
+      .collect(toMap(Post::getPostId, identity()));
+    List<PostResponse> posts = ranked.getItems()
+      .stream()
+      .map(postsById::get)
+      .filter(Objects::nonNull)
       .map(postMapper::mapToDto)
       .collect(toList());
+    return new CursorPage<>(posts, ranked.getNext());
+  }
+
+  private CursorPage<PostResponse> toPage(Slice<Post> slice) {
+    List<Post> posts = slice.getContent();
+    String next = null;
+    if (slice.hasNext()) {
+      Post last = posts.get(posts.size() - 1);
+      next = new PageCursor(last.getCreatedDate(), last.getPostId()).encode();
+    }
+    return new CursorPage<>(posts.stream().map(postMapper::mapToDto).collect(toList()), next);
   }
 }
@@ -0,0 +1,122 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.model.PostSort;
+import com.example.springredditclone.model.TimeWindow;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Posts of one feed kept pre-sorted for every ranked order. Reads walk the skip lists without locking; writers
+ * are serialized by PostRankingService.
+ * */
+class RankedIndex {
+  private static final Comparator<RankedPost> HOT = (a, b) -> {
+    int order = Double.compare(b.hot(), a.hot());
+    return order != 0 ? order : Long.compare(b.getPostId(), a.getPostId());
+  };
+  private static final Comparator<RankedPost> TOP = (a, b) -> {
+    int order = Integer.compare(b.getVotes(), a.getVotes());
+    return order != 0 ? order : Long.compare(b.getPostId(), a.getPostId());
+  };
+  private static final Comparator<RankedPost> RISING = (a, b) -> {
+    int order = Double.compare(b.getVelocity(), a.getVelocity());
+    return order != 0 ? order : Long.compare(b.getPostId(), a.getPostId());
+  };
+
+  private final Map<Long, RankedPost> posts = new ConcurrentHashMap<>();
+  private final NavigableSet<RankedPost> hot = new ConcurrentSkipListSet<>(HOT);
+  private final NavigableSet<RankedPost> rising = new ConcurrentSkipListSet<>(RISING);
+  private final Map<TimeWindow, NavigableSet<RankedPost>> top = new EnumMap<>(TimeWindow.class);
+
+  RankedIndex() {
+    for (TimeWindow window : TimeWindow.values()) {
+      top.put(window, new ConcurrentSkipListSet<>(TOP));
+    }
+  }
+
+  RankedPost get(long postId) {
+    return posts.get(postId);
+  }
+
+  Set<Long> postIds() {
+    return posts.keySet();
+  }
+
+  void put(RankedPost post, Instant risingCutoff, Instant now) {
+    RankedPost previous = posts.put(post.getPostId(), post);
+    if (previous != null) {
+      unlink(previous);
+    }
+    hot.add(post);
+    if (post.getCreatedEpochSecond() > risingCutoff.getEpochSecond()) {
+      rising.add(post);
+    }
+    Instant createdDate = Instant.ofEpochSecond(post.getCreatedEpochSecond());
+    top.forEach((window, windowed) -> {
+      if (window.contains(createdDate, now)) {
+        windowed.add(post);
+      }
+    });
+  }
+
+  /**
+   * Drops posts that aged out of the rising and windowed top listings and rescales the remaining rising
+   * velocities by the given decay factor.
+   * */
+  void redecay(double decay, Instant risingCutoff, Instant now) {
+    for (RankedPost post : new ArrayList<>(rising)) {
+      if (post.getCreatedEpochSecond() <= risingCutoff.getEpochSecond()) {
+        rising.remove(post);
+      } else {
+        put(post.withVelocity(post.getVelocity() * decay), risingCutoff, now);
+      }
+    }
+    top.forEach((window, windowed) -> {
+      if (window != TimeWindow.ALL) {
+        windowed.removeIf(post -> !window.contains(Instant.ofEpochSecond(post.getCreatedEpochSecond()), now));
+      }
+    });
+  }
+
+  /**
+   * Returns up to limit + 1 posts following the given entry, so the caller can tell whether another page exists.
+   * */
+  List<RankedPost> page(PostSort sort, TimeWindow window, RankedPost after, int limit) {
+    NavigableSet<RankedPost> ordered = orderedBy(sort, window);
+    Iterable<RankedPost> view = after == null ? ordered : ordered.tailSet(after, false);
+    List<RankedPost> page = new ArrayList<>(limit + 1);
+    for (RankedPost post : view) {
+      page.add(post);
+      if (page.size() > limit) {
+        break;
+      }
+    }
+    return page;
+  }
+
+  private NavigableSet<RankedPost> orderedBy(PostSort sort, TimeWindow window) {
+    switch (sort) {
+      case TOP:
+        return top.get(window);
+      case RISING:
+        return rising;
+      default:
+        return hot;
+    }
+  }
+
+  private void unlink(RankedPost post) {
+    hot.remove(post);
+    rising.remove(post);
+    top.values().forEach(windowed -> windowed.remove(post));
+  }
+}
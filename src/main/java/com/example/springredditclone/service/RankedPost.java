@@ -0,0 +1,28 @@
+package com.example.springredditclone.service;
+
+import lombok.Value;
+import lombok.experimental.Wither;
+
+/**
+ * Immutable ranking snapshot of a post. An update replaces the snapshot, so an entry never changes its position
+ * while it sits inside a sorted set.
+ * */
+@Value
+@Wither
+class RankedPost {
+  // Start of the "hot" clock, as in Reddit's original ranking
+  private static final long HOT_EPOCH_SECOND = 1134028003L;
+  private static final double HOT_SECONDS_PER_ORDER = 45000d;
+
+  long postId;
+  long subredditId;
+  long createdEpochSecond;
+  int votes;
+  // Exponentially decayed vote rate, scaled to the ranking service's current decay base
+  double velocity;
+
+  double hot() {
+    double order = Math.log10(Math.max(Math.abs(votes), 1));
+    return Math.signum(votes) * order + (createdEpochSecond - HOT_EPOCH_SECOND) / HOT_SECONDS_PER_ORDER;
+  }
+}
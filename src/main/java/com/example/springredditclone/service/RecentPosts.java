@@ -0,0 +1,77 @@
+package com.example.springredditclone.service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * The newest posts of a feed, newest first, holding at most capacity entries. Once older entries have been dropped
+ * (or were never loaded) the set is truncated: it is only complete down to its oldest entry.
+ * */
+class RecentPosts {
+  static final Comparator<FeedEntry> NEWEST_FIRST = Comparator.comparing(FeedEntry::getCreatedDate)
+    .thenComparing(FeedEntry::getPostId)
+    .reversed();
+
+  private static final FeedEntry NOTHING = new FeedEntry(Long.MAX_VALUE, null, Instant.MAX);
+
+  private final ConcurrentSkipListSet<FeedEntry> entries = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+  // ConcurrentSkipListSet.size() walks the whole set, so the size is tracked separately
+  private final AtomicInteger size = new AtomicInteger();
+  private final int capacity;
+  private volatile boolean truncated;
+
+  RecentPosts(int capacity) {
+    this.capacity = capacity;
+  }
+
+  void add(FeedEntry entry) {
+    if (entries.add(entry)) {
+      size.incrementAndGet();
+    }
+    while (size.get() > capacity) {
+      if (entries.pollLast() != null) {
+        size.decrementAndGet();
+        truncated = true;
+      }
+    }
+  }
+
+  void markTruncated() {
+    truncated = true;
+  }
+
+  void removeIf(Predicate<FeedEntry> filter) {
+    for (FeedEntry entry : entries) {
+      if (filter.test(entry) && entries.remove(entry)) {
+        size.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Entries strictly older than the given one, or all of them when it is null.
+   * */
+  Iterator<FeedEntry> after(FeedEntry from) {
+    return from == null ? entries.iterator() : entries.tailSet(from, false).iterator();
+  }
+
+  /**
+   * The oldest entry this set is complete down to, or null when nothing older was ever dropped. A truncated set that
+   * has been emptied is complete down to nothing at all.
+   * */
+  FeedEntry horizon() {
+    if (!truncated) {
+      return null;
+    }
+    try {
+      return entries.last();
+    } catch (NoSuchElementException e) {
+      return NOTHING;
+    }
+  }
+}
@@ -1,30 +1,96 @@
 package com.example.springredditclone.service;
 
 import com.example.springredditclone.exception.SpringRedditException;
+import com.example.springredditclone.model.LegacyRefreshToken;
 import com.example.springredditclone.model.RefreshToken;
+import com.example.springredditclone.model.User;
+import com.example.springredditclone.repository.LegacyRefreshTokenRepository;
 import com.example.springredditclone.repository.RefreshTokenRepository;
-import lombok.AllArgsConstructor;
+import com.example.springredditclone.repository.UserRepository;
+import com.example.springredditclone.util.TokenHash;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.Base64;
+import java.util.Optional;
 
 @Service
-@AllArgsConstructor
 @Transactional
 public class RefreshTokenService {
+  private static final SecureRandom RANDOM = new SecureRandom();
+
   private final RefreshTokenRepository refreshTokenRepository;
-  RefreshToken generateRefreshToken() {
-    RefreshToken refreshToken = new RefreshToken();
-    refreshToken.setToken(UUID.randomUUID().toString());
-    refreshToken.setCreatedDate(Instant.now());
-    return refreshTokenRepository.save(refreshToken);
+  private final LegacyRefreshTokenRepository legacyRefreshTokenRepository;
+  private final UserRepository userRepository;
+  private final long refreshExpirationInMillis;
+
+  public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                             LegacyRefreshTokenRepository legacyRefreshTokenRepository, UserRepository userRepository,
+                             @Value("${jwt.refresh.expiration.time}") long refreshExpirationInMillis) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.legacyRefreshTokenRepository = legacyRefreshTokenRepository;
+    this.userRepository = userRepository;
+    this.refreshExpirationInMillis = refreshExpirationInMillis;
+  }
+
+  String generateRefreshToken(Long userId) {
+    return issue(userRepository.getOne(userId)).getToken();
+  }
+
+  /**
+   * Exchanges a valid refresh token for a new one. The old token is deleted in the same transaction, and only one
+   * of two concurrent refreshes with the same token can delete it, so each token is usable exactly once.
+   * */
+  IssuedRefreshToken rotateRefreshToken(String token, String username) {
+    String tokenHash = TokenHash.of(token);
+    Optional<RefreshToken> refreshToken = refreshTokenRepository.findWithUserByTokenHash(tokenHash);
+    if (!refreshToken.isPresent()) {
+      return rotateLegacyRefreshToken(token, username);
+    }
+    if (!refreshToken.get().getExpiryDate().isAfter(Instant.now())
+      || refreshTokenRepository.deleteByTokenHash(tokenHash) == 0) {
+      throw new SpringRedditException("Invalid refresh Token");
+    }
+    return issue(refreshToken.get().getUser());
   }
-  void validateRefreshToken(String token) {
-    refreshTokenRepository.findByToken(token)
+
+  /**
+   * Tokens issued before the upgrade name no user, so like before they are trusted for the username sent with
+   * them. Each is swapped for a hashed, user-bound token on first use.
+   * */
+  private IssuedRefreshToken rotateLegacyRefreshToken(String token, String username) {
+    Instant issuedAfter = Instant.now().minusMillis(refreshExpirationInMillis);
+    LegacyRefreshToken legacyToken = legacyRefreshTokenRepository.findByToken(token)
+      .filter(existing -> existing.getCreatedDate().isAfter(issuedAfter))
+      .orElseThrow(() -> new SpringRedditException("Invalid refresh Token"));
+    User user = userRepository.findByUsername(username)
       .orElseThrow(() -> new SpringRedditException("Invalid refresh Token"));
+    if (legacyRefreshTokenRepository.deleteByToken(legacyToken.getToken()) == 0) {
+      throw new SpringRedditException("Invalid refresh Token");
+    }
+    return issue(user);
   }
+
   public void deleteRefreshToken(String token) {
-    refreshTokenRepository.deleteByToken(token);
+    if (refreshTokenRepository.deleteByTokenHash(TokenHash.of(token)) == 0) {
+      legacyRefreshTokenRepository.deleteByToken(token);
+    }
+  }
+
+  private IssuedRefreshToken issue(User user) {
+    byte[] bytes = new byte[32];
+    RANDOM.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    Instant now = Instant.now();
+    refreshTokenRepository.save(RefreshToken.builder()
+      .tokenHash(TokenHash.of(token))
+      .user(user)
+      .createdDate(now)
+      .expiryDate(now.plusMillis(refreshExpirationInMillis))
+      .build());
+    return new IssuedRefreshToken(token, user);
   }
 }
@@ -0,0 +1,65 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.repository.LegacyRefreshTokenRepository;
+import com.example.springredditclone.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Deletes expired refresh tokens in chunks. Every chunk is its own short transaction that selects a bounded batch
+ * of keys and deletes exactly those, so a large backlog never holds locks on the table for long.
+ * */
+@Component
+@Slf4j
+public class RefreshTokenSweeper {
+  private static final int BATCH_SIZE = 1000;
+
+  private final RefreshTokenRepository refreshTokenRepository;
+  private final LegacyRefreshTokenRepository legacyRefreshTokenRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final long refreshExpirationInMillis;
+
+  public RefreshTokenSweeper(RefreshTokenRepository refreshTokenRepository,
+                             LegacyRefreshTokenRepository legacyRefreshTokenRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${jwt.refresh.expiration.time}") long refreshExpirationInMillis) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.legacyRefreshTokenRepository = legacyRefreshTokenRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.refreshExpirationInMillis = refreshExpirationInMillis;
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.refresh.sweep-interval}")
+  public void deleteExpired() {
+    Instant now = Instant.now();
+    int total = 0;
+    int deleted;
+    do {
+      deleted = transactionTemplate.execute(status -> {
+        List<String> expired = refreshTokenRepository.findExpiredTokenHashes(now, PageRequest.of(0, BATCH_SIZE));
+        return expired.isEmpty() ? 0 : refreshTokenRepository.deleteByTokenHashIn(expired);
+      });
+      total += deleted;
+    } while (deleted == BATCH_SIZE);
+
+    // Legacy tokens carry no expiry; they expire a refresh token lifetime after they were issued
+    Instant legacyCutoff = now.minusMillis(refreshExpirationInMillis);
+    do {
+      deleted = transactionTemplate.execute(status -> {
+        List<Long> expired = legacyRefreshTokenRepository.findIdsCreatedBefore(legacyCutoff, PageRequest.of(0, BATCH_SIZE));
+        return expired.isEmpty() ? 0 : legacyRefreshTokenRepository.deleteByIdIn(expired);
+      });
+      total += deleted;
+    } while (deleted == BATCH_SIZE);
+    if (total > 0) {
+      log.info("Deleted {} expired refresh tokens", total);
+    }
+  }
+}
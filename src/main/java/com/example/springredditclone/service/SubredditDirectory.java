@@ -0,0 +1,126 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.dto.SubredditDto;
+import com.example.springredditclone.event.PostCreatedEvent;
+import com.example.springredditclone.event.SubredditCreatedEvent;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.repository.SubredditRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Every subreddit, held in memory. It is loaded once at startup and then kept current from SubredditCreatedEvent and
+ * PostCreatedEvent, so listing, resolving names and autocomplete never query the database. A name this instance has
+ * not seen yet, e.g. one created through another instance, is looked up once and then remembered.
+ * */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubredditDirectory {
+  private static final String NAME_PREFIX = "/r/";
+
+  private final SubredditRepository subredditRepository;
+
+  private final ConcurrentMap<String, Long> idsByName = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Long, Entry> entriesById = new ConcurrentHashMap<>();
+  // Sorted by the lower-cased name without /r/, so a prefix is a contiguous range
+  private final ConcurrentNavigableMap<String, Entry> entriesByKey = new ConcurrentSkipListMap<>();
+  private volatile boolean ready;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    for (SubredditDto subreddit : subredditRepository.findAllDtos()) {
+      add(subreddit.getId(), subreddit.getName(), subreddit.getDescription(), subreddit.getNumberOfPosts());
+    }
+    ready = true;
+    log.info("Loaded {} subreddits into the directory", entriesById.size());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onSubredditCreated(SubredditCreatedEvent event) {
+    add(event.getSubredditId(), event.getName(), event.getDescription(), 0);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPostCreated(PostCreatedEvent event) {
+    Entry entry = entriesById.get(event.getSubredditId());
+    if (entry != null) {
+      entry.getPostCount().incrementAndGet();
+    }
+  }
+
+  public Optional<Long> findId(String name) {
+    Long id = idsByName.get(name);
+    if (id != null) {
+      return Optional.of(id);
+    }
+    Optional<Subreddit> subreddit = subredditRepository.findByName(name);
+    subreddit.ifPresent(found -> add(found.getId(), found.getName(), found.getDescription(), found.getPostCount()));
+    return subreddit.map(Subreddit::getId);
+  }
+
+  public List<SubredditDto> getAll() {
+    if (!ready) {
+      return subredditRepository.findAllDtos();
+    }
+    return entriesByKey.values().stream().map(Entry::toDto).collect(toList());
+  }
+
+  /**
+   * Subreddits whose name, with or without the leading /r/, starts with the given prefix, in name order.
+   * */
+  public List<SubredditDto> complete(String prefix, int limit) {
+    String from = key(prefix);
+    List<SubredditDto> matches = new ArrayList<>(limit);
+    for (Entry entry : entriesByKey.tailMap(from).values()) {
+      if (matches.size() == limit || !entry.getKey().startsWith(from)) {
+        break;
+      }
+      matches.add(entry.toDto());
+    }
+    return matches;
+  }
+
+  private void add(Long id, String name, String description, Integer postCount) {
+    Entry entry = new Entry(id, name, description, key(name), new AtomicInteger(postCount == null ? 0 : postCount));
+    if (entriesById.putIfAbsent(id, entry) == null) {
+      entriesByKey.put(entry.getKey(), entry);
+      idsByName.put(name, id);
+    }
+  }
+
+  private static String key(String name) {
+    String key = name.toLowerCase(Locale.ROOT);
+    return key.startsWith(NAME_PREFIX) ? key.substring(NAME_PREFIX.length()) : key;
+  }
+
+  @Value
+  private static class Entry {
+    Long id;
+    String name;
+    String description;
+    String key;
+    AtomicInteger postCount;
+
+    SubredditDto toDto() {
+      return new SubredditDto(id, name, description, postCount.get());
+    }
+  }
+}
@@ -1,20 +1,21 @@
 package com.example.springredditclone.service;
 
 import com.example.springredditclone.dto.SubredditDto;
+import com.example.springredditclone.event.SubredditCreatedEvent;
 import com.example.springredditclone.exception.SpringRedditException;
 import com.example.springredditclone.exception.SubredditNotFoundException;
-import com.example.springredditclone.mapper.SubredditMapper;
 import com.example.springredditclone.model.Subreddit;
 import com.example.springredditclone.repository.SubredditRepository;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
 import static java.time.Instant.now;
-import static java.util.stream.Collectors.toList;
 
 
 @Service
@@ -23,21 +24,23 @@ import static java.util.stream.Collectors.toList;
 public class SubredditService {
   private final SubredditRepository subredditRepository;
   private final AuthService authService;
-  private final SubredditMapper subredditMapper;
+  private final SubredditDirectory subredditDirectory;
+  private final ApplicationEventPublisher eventPublisher;
 
 
   @Transactional(readOnly = true)
   public List<SubredditDto> getAll() {
-    return subredditRepository.findAll()
-      .stream()
-//      .map(this::mapToDto)
-      .map(subredditMapper::mapSubredditToDto)
-      .collect(toList());
+    return subredditDirectory.getAll();
+  }
+
+  public List<SubredditDto> complete(String prefix, int limit) {
+    return subredditDirectory.complete(prefix, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
   }
 
   @Transactional
   public SubredditDto save(SubredditDto subredditDto) {
     Subreddit subreddit = subredditRepository.save(mapToSubreddit(subredditDto));
+    eventPublisher.publishEvent(new SubredditCreatedEvent(subreddit.getId(), subreddit.getName(), subreddit.getDescription()));
     subredditDto.setId(subreddit.getId());
     return subredditDto;
   }
@@ -49,16 +52,16 @@ public class SubredditService {
 //    return mapToDto(subreddit);
 //  }
 
+  @Transactional(readOnly = true)
   public SubredditDto getSubreddit(Long id) {
-    Subreddit subreddit = subredditRepository.findById(id)
+    return subredditRepository.findDtoById(id)
       .orElseThrow(() -> new SpringRedditException("No subreddit found with ID - " + id));
-    return subredditMapper.mapSubredditToDto(subreddit);
   }
 
   private SubredditDto mapToDto(Subreddit subreddit) {
     return SubredditDto.builder().name(subreddit.getName())
       .id(subreddit.getId())
-      .numberOfPosts(subreddit.getPosts().size())
+      .numberOfPosts(subreddit.getPostCount())
       .build();
   }
 
@@ -0,0 +1,48 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.event.SubscriptionChangedEvent;
+import com.example.springredditclone.exception.SubredditNotFoundException;
+import com.example.springredditclone.model.Subscription;
+import com.example.springredditclone.repository.SubredditRepository;
+import com.example.springredditclone.repository.SubscriptionRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import static java.time.Instant.now;
+
+@Service
+@AllArgsConstructor
+@Slf4j
+@Transactional
+public class SubscriptionService {
+  private final SubscriptionRepository subscriptionRepository;
+  private final SubredditRepository subredditRepository;
+  private final AuthService authService;
+  private final ApplicationEventPublisher eventPublisher;
+
+  public void subscribe(Long subredditId) {
+    Long userId = authService.getCurrentUserId();
+    if (!subredditRepository.existsById(subredditId)) {
+      throw new SubredditNotFoundException(subredditId.toString());
+    }
+    if (subscriptionRepository.existsByUserUserIdAndSubredditId(userId, subredditId)) {
+      return;
+    }
+    subscriptionRepository.save(Subscription.builder()
+      .user(authService.getCurrentUser())
+      .subreddit(subredditRepository.getOne(subredditId))
+      .createdDate(now())
+      .build());
+    eventPublisher.publishEvent(new SubscriptionChangedEvent(userId, subredditId, true));
+  }
+
+  public void unsubscribe(Long subredditId) {
+    Long userId = authService.getCurrentUserId();
+    if (subscriptionRepository.deleteSubscription(userId, subredditId) > 0) {
+      eventPublisher.publishEvent(new SubscriptionChangedEvent(userId, subredditId, false));
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.example.springredditclone.service;
 
 import com.example.springredditclone.model.User;
 import com.example.springredditclone.repository.UserRepository;
+import com.example.springredditclone.security.UserPrincipal;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.GrantedAuthority;
@@ -28,10 +29,8 @@ class  UserDetailsServiceImpl implements UserDetailsService {
   public UserDetails loadUserByUsername(String username) {
     Optional<User> userOptional = userRepository.findByUsername(username);
     User user = userOptional.orElseThrow(() -> new UsernameNotFoundException("No user Found with username : " + username));
-    return new org.springframework.security
-      .core.userdetails.User(user.getUsername(), user.getPassword(),
-      user.isEnabled(), true, true,
-      true, getAuthorities("USER"));
+    return new UserPrincipal(user.getUserId(), user.getUsername(), user.getPassword(),
+      user.isEnabled(), getAuthorities("USER"));
   }
 
   private Collection<? extends GrantedAuthority> getAuthorities(String role) {
@@ -2,17 +2,29 @@ package com.example.springredditclone.service;
 
 
 import com.example.springredditclone.dto.VoteDto;
+import com.example.springredditclone.event.VoteCastEvent;
+import com.example.springredditclone.exception.ConflictException;
 import com.example.springredditclone.exception.SpringRedditException;
 import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.User;
 import com.example.springredditclone.model.Vote;
 import com.example.springredditclone.repository.PostRepository;
 import com.example.springredditclone.repository.VoteRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import static com.example.springredditclone.model.VoteType.DOWNVOTE;
 import static com.example.springredditclone.model.VoteType.UPVOTE;
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
 
 @Service
 @AllArgsConstructor
@@ -21,31 +33,70 @@ public class VoteService {
   private final PostRepository postRepository;
   private final VoteRepository voteRepository;
   private final AuthService authService;
+  private final VoteStateCache voteStateCache;
+  private final VoteCountBuffer voteCountBuffer;
+  private final ApplicationEventPublisher eventPublisher;
 
+  @Transactional
   public void vote(VoteDto voteDto) {
-    Post post = postRepository.findById(voteDto.getPostId()).orElseThrow(() -> new SpringRedditException("Post not found with the ID " + voteDto.getPostId()));
-    Optional<Vote> voteByPostAndUser = voteRepository.findTopByPostAndUserOrderByVoteIdDesc(post, authService.getCurrentUser());
+    Long userId = authService.getCurrentUserId();
+    User currentUser = authService.getCurrentUser();
+    if (!postRepository.existsById(voteDto.getPostId())) {
+      throw new SpringRedditException("Post not found with the ID " + voteDto.getPostId());
+    }
+    // The vote count itself is applied by VoteCountBuffer, so the post row is neither loaded nor locked here
+    Post post = postRepository.getOne(voteDto.getPostId());
+    Optional<Vote> voteByPostAndUser = voteRepository.findByPostAndUser(post, currentUser);
 
-    // Line 31-36: We are first checking whether the user has already performed the same Vote action or not.
-    // ie. If the user has already upvoted a particular post, he/she is not allowed to upvote that particular post again.
+    // If the user has already upvoted a particular post, they are not allowed to upvote that particular post again.
+    // This reads the vote row rather than VoteStateCache: the cache is per instance and misses votes cast through
+    // other instances, so rejecting from it could block a valid vote for as long as the entry stays cached.
     if (voteByPostAndUser.isPresent() && voteByPostAndUser.get().getVoteType().equals(voteDto.getVoteType())) {
+      voteStateCache.put(userId, voteDto.getPostId(), voteDto.getVoteType());
       throw new SpringRedditException("You have already " + voteDto.getVoteType() + "'d for this post");
     }
 
-    if (UPVOTE.equals(voteDto.getVoteType())) {
-      post.setVoteCount(post.getVoteCount() + 1);
-    } else {
-      post.setVoteCount(post.getVoteCount() - 1);
+    // Upsert the user's single vote row; flipping an existing vote moves the count by two
+    Vote vote = voteByPostAndUser.orElseGet(() -> Vote.builder().post(post).user(currentUser).build());
+    int delta = voteDto.getVoteType().getDirection() - voteByPostAndUser.map(v -> v.getVoteType().getDirection()).orElse(0);
+    vote.setVoteType(voteDto.getVoteType());
+    try {
+      voteRepository.saveAndFlush(vote);
+    } catch (DataIntegrityViolationException e) {
+      // Another request of the same user inserted the first vote on this post in the meantime
+      voteStateCache.evict(userId, voteDto.getPostId());
+      throw new ConflictException("Your vote on this post changed concurrently, please try again");
     }
-    voteRepository.save(mapToVote(voteDto, post));
-    postRepository.save(post);
+    voteCountBuffer.add(voteDto.getPostId(), delta);
+    eventPublisher.publishEvent(new VoteCastEvent(voteDto.getPostId(), userId, voteDto.getVoteType(), delta));
   }
 
-  private Vote mapToVote(VoteDto voteDto, Post post) {
-    return Vote.builder()
-      .voteType(voteDto.getVoteType())
-      .post(post)
-      .user(authService.getCurrentUser())
-      .build();
+  /**
+   * The current user's votes on the given posts, for highlighting a page of posts. Posts the user has not voted
+   * on are left out of the result.
+   * */
+  @Transactional(readOnly = true)
+  public List<VoteDto> getVotesForCurrentUser(List<Long> postIds) {
+    Long userId = authService.getCurrentUserId();
+    List<VoteDto> votes = new ArrayList<>();
+    List<Long> unknown = new ArrayList<>();
+    for (Long postId : postIds.subList(0, Math.min(postIds.size(), MAX_PAGE_SIZE))) {
+      Byte cached = voteStateCache.get(userId, postId);
+      if (cached == null) {
+        unknown.add(postId);
+      } else if (cached != VoteStateCache.NOT_VOTED) {
+        votes.add(new VoteDto(cached > 0 ? UPVOTE : DOWNVOTE, postId));
+      }
+    }
+    if (!unknown.isEmpty()) {
+      Set<Long> notVoted = new HashSet<>(unknown);
+      for (VoteDto vote : voteRepository.findVotesByUser(userId, unknown)) {
+        votes.add(vote);
+        notVoted.remove(vote.getPostId());
+        voteStateCache.put(userId, vote.getPostId(), vote.getVoteType());
+      }
+      notVoted.forEach(postId -> voteStateCache.put(userId, postId, null));
+    }
+    return votes;
   }
 }
@@ -0,0 +1,71 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.event.VoteCastEvent;
+import com.example.springredditclone.model.VoteType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-user LRU of known vote directions (postId -> +1 / -1, or 0 for "known not voted"). A miss means unknown and
+ * has to be answered by the database. Entries are written only after the vote transaction commits.
+ *
+ * Only used to highlight the user's votes on a page of posts. Votes cast through another instance never reach this
+ * cache, so a vote is always checked against the vote row, never against an entry here.
+ * */
+@Service
+public class VoteStateCache {
+  public static final byte NOT_VOTED = 0;
+
+  private static final int MAX_USERS = 10_000;
+  private static final int MAX_POSTS_PER_USER = 1_000;
+
+  private final Map<Long, Map<Long, Byte>> byUser = new LruMap<>(MAX_USERS);
+
+  /**
+   * Returns the cached direction of the user's vote on the post, or null when it is not known.
+   * */
+  public Byte get(Long userId, Long postId) {
+    synchronized (byUser) {
+      Map<Long, Byte> votes = byUser.get(userId);
+      return votes == null ? null : votes.get(postId);
+    }
+  }
+
+  public void put(Long userId, Long postId, VoteType voteType) {
+    byte direction = voteType == null ? NOT_VOTED : (byte) voteType.getDirection();
+    synchronized (byUser) {
+      byUser.computeIfAbsent(userId, id -> new LruMap<>(MAX_POSTS_PER_USER)).put(postId, direction);
+    }
+  }
+
+  public void evict(Long userId, Long postId) {
+    synchronized (byUser) {
+      Map<Long, Byte> votes = byUser.get(userId);
+      if (votes != null) {
+        votes.remove(postId);
+      }
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onVoteCast(VoteCastEvent event) {
+    put(event.getUserId(), event.getPostId(), event.getVoteType());
+  }
+
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+    private final int capacity;
+
+    LruMap(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > capacity;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.springredditclone.util;
+
+import com.example.springredditclone.model.Comment;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.io.Serializable;
+
+/**
+ * Time-ordered ids for comments that also fill in the comment's path. The path ends with the comment's own id, and
+ * Hibernate reads the insert values only after the id is generated, so the path goes into the INSERT itself rather
+ * than into a second UPDATE of the new row.
+ * */
+public class CommentIdGenerator extends TimeOrderedIdGenerator {
+  public static final String NAME = "comment-id";
+
+  @Override
+  public Serializable generate(SharedSessionContractImplementor session, Object object) {
+    Long id = (Long) super.generate(session, object);
+    Comment comment = (Comment) object;
+    Comment parent = comment.getParent();
+    comment.setPath(CommentPath.childOf(parent == null ? null : parent.getPath(), id));
+    return id;
+  }
+}
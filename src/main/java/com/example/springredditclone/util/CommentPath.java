@@ -0,0 +1,53 @@
+package com.example.springredditclone.util;
+
+import com.example.springredditclone.exception.SpringRedditException;
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Materialized comment paths. A path is the concatenation of fixed-width base36 ids from the root comment down to
+ * the comment itself, so sorting by path yields depth-first thread order and a whole subtree is the range
+ * [path, path + "~").
+ * */
+@UtilityClass
+public class CommentPath {
+  // Wide enough for any positive long in base36
+  public static final int SEGMENT_WIDTH = 13;
+  public static final int MAX_DEPTH = 48;
+  public static final int MAX_LENGTH = SEGMENT_WIDTH * (MAX_DEPTH + 1);
+
+  // Sorts after every base36 digit, so path + SUBTREE_END bounds the subtree from above
+  private static final String SUBTREE_END = "~";
+
+  public static String childOf(String parentPath, Long id) {
+    StringBuilder path = new StringBuilder(parentPath == null ? "" : parentPath);
+    String segment = Long.toString(id, 36);
+    for (int i = segment.length(); i < SEGMENT_WIDTH; i++) {
+      path.append('0');
+    }
+    return path.append(segment).toString();
+  }
+
+  // Path of the top-level comment of the thread the path belongs to
+  public static String rootOf(String path) {
+    return path.substring(0, Math.min(path.length(), SEGMENT_WIDTH));
+  }
+
+  public static String subtreeEnd(String path) {
+    return path + SUBTREE_END;
+  }
+
+  public static String encodeCursor(String path) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(path.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String decodeCursor(String cursor) {
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new SpringRedditException("Invalid page cursor - " + cursor);
+    }
+  }
+}
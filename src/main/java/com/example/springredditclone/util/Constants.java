@@ -17,4 +17,6 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public class Constants {
     public static final String ACTIVATION_EMAIL = "http://localhost:8080/api/auth/accountVerification";
+    public static final String DEFAULT_PAGE_SIZE = "25";
+    public static final int MAX_PAGE_SIZE = 100;
 }
@@ -0,0 +1,43 @@
+package com.example.springredditclone.util;
+
+import com.example.springredditclone.exception.SpringRedditException;
+import lombok.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
+
+/**
+ * Opaque keyset cursor over (createdDate, id). Clients only ever see the encoded form and hand it back as the
+ * "after" parameter, so the page boundary is found with an index seek instead of an OFFSET scan.
+ * */
+@Value
+public class PageCursor {
+  private static final String SEPARATOR = "|";
+
+  Instant createdDate;
+  Long id;
+
+  public String encode() {
+    String raw = createdDate.toString() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static PageCursor decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = raw.indexOf(SEPARATOR);
+      return new PageCursor(Instant.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new SpringRedditException("Invalid page cursor - " + cursor);
+    }
+  }
+
+  public static Pageable pageOf(int limit) {
+    return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+  }
+}
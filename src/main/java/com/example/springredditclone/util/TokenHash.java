@@ -0,0 +1,30 @@
+package com.example.springredditclone.util;
+
+import com.example.springredditclone.exception.SpringRedditException;
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 of a bearer token as 43 base64url characters, for keying tokens without storing them.
+ * */
+@UtilityClass
+public class TokenHash {
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new SpringRedditException("SHA-256 is not available");
+    }
+  });
+
+  public static final int LENGTH = 43;
+
+  public static String of(String token) {
+    byte[] digest = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+  }
+}
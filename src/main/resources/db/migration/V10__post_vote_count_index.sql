@@ -0,0 +1,2 @@
+-- Lets PostRankingService load the most voted posts of all time without sorting the post table
+CREATE INDEX idx_post_vote_count ON post (vote_count, post_id);
@@ -0,0 +1,7 @@
+-- Vote count changes written with each vote and applied to post.vote_count in batches by VoteCountBuffer
+CREATE TABLE pending_vote_delta (
+  id      BIGINT NOT NULL,
+  post_id BIGINT,
+  delta   INTEGER,
+  PRIMARY KEY (id)
+) ENGINE = InnoDB;
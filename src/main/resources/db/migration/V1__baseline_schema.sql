@@ -0,0 +1,83 @@
+-- The schema as Hibernate's ddl-auto=update created it for the last release before versioned migrations.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and only run the later
+-- scripts; a new database runs this one too.
+
+CREATE TABLE user (
+  user_id  BIGINT       NOT NULL AUTO_INCREMENT,
+  username VARCHAR(255),
+  password VARCHAR(255),
+  email    VARCHAR(255),
+  created  DATETIME(6),
+  enabled  BIT          NOT NULL,
+  PRIMARY KEY (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE subreddit (
+  id           BIGINT       NOT NULL AUTO_INCREMENT,
+  name         VARCHAR(255),
+  description  VARCHAR(255),
+  created_date DATETIME(6),
+  user_user_id BIGINT,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_subreddit_user FOREIGN KEY (user_user_id) REFERENCES user (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE post (
+  post_id      BIGINT       NOT NULL AUTO_INCREMENT,
+  post_name    VARCHAR(255),
+  url          VARCHAR(255),
+  description  LONGTEXT,
+  vote_count   INTEGER,
+  user_id      BIGINT,
+  created_date DATETIME(6),
+  id           BIGINT,
+  PRIMARY KEY (post_id),
+  CONSTRAINT fk_post_user FOREIGN KEY (user_id) REFERENCES user (user_id),
+  CONSTRAINT fk_post_subreddit FOREIGN KEY (id) REFERENCES subreddit (id)
+) ENGINE = InnoDB;
+
+-- Join table of the old unidirectional Subreddit.posts mapping
+CREATE TABLE subreddit_posts (
+  subreddit_id  BIGINT NOT NULL,
+  posts_post_id BIGINT NOT NULL,
+  CONSTRAINT uk_subreddit_posts_post UNIQUE (posts_post_id),
+  CONSTRAINT fk_subreddit_posts_subreddit FOREIGN KEY (subreddit_id) REFERENCES subreddit (id),
+  CONSTRAINT fk_subreddit_posts_post FOREIGN KEY (posts_post_id) REFERENCES post (post_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE comment (
+  id           BIGINT       NOT NULL AUTO_INCREMENT,
+  text         VARCHAR(255),
+  post_id      BIGINT,
+  created_date DATETIME(6),
+  user_id      BIGINT,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_comment_post FOREIGN KEY (post_id) REFERENCES post (post_id),
+  CONSTRAINT fk_comment_user FOREIGN KEY (user_id) REFERENCES user (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE vote (
+  vote_id   BIGINT  NOT NULL AUTO_INCREMENT,
+  vote_type INTEGER,
+  post_id   BIGINT  NOT NULL,
+  user_id   BIGINT,
+  PRIMARY KEY (vote_id),
+  CONSTRAINT fk_vote_post FOREIGN KEY (post_id) REFERENCES post (post_id),
+  CONSTRAINT fk_vote_user FOREIGN KEY (user_id) REFERENCES user (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE token (
+  id           BIGINT       NOT NULL AUTO_INCREMENT,
+  token        VARCHAR(255),
+  user_user_id BIGINT,
+  expiry_date  DATETIME(6),
+  PRIMARY KEY (id),
+  CONSTRAINT fk_token_user FOREIGN KEY (user_user_id) REFERENCES user (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE refresh_token (
+  id           BIGINT       NOT NULL AUTO_INCREMENT,
+  token        VARCHAR(255),
+  created_date DATETIME(6),
+  PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- Keyset pagination of the post listings and the denormalized comment count.
+-- The count is filled here for the existing posts, before any instance can increment it.
+ALTER TABLE post
+  ADD COLUMN comment_count INTEGER NOT NULL DEFAULT 0,
+  ADD INDEX idx_post_created (created_date, post_id),
+  ADD INDEX idx_post_subreddit_created (id, created_date, post_id),
+  ADD INDEX idx_post_user_created (user_id, created_date, post_id);
+
+UPDATE post p
+SET comment_count = (SELECT COUNT(*) FROM comment c WHERE c.post_id = p.post_id);
@@ -0,0 +1,13 @@
+-- Collapses the vote history to the latest vote per (user, post), adds the unique key that keeps it that way and
+-- recomputes post.vote_count from the surviving rows (vote_type is stored as the enum ordinal: 0 = UPVOTE).
+DELETE older FROM vote older
+  JOIN vote newer ON newer.user_id = older.user_id
+    AND newer.post_id = older.post_id
+    AND newer.vote_id > older.vote_id;
+
+ALTER TABLE vote ADD CONSTRAINT uk_vote_user_post UNIQUE (user_id, post_id);
+
+UPDATE post p SET p.vote_count = (
+  SELECT COALESCE(SUM(CASE v.vote_type WHEN 0 THEN 1 ELSE -1 END), 0)
+  FROM vote v
+  WHERE v.post_id = p.post_id);
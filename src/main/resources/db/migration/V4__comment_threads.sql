@@ -0,0 +1,21 @@
+-- Threaded comments with materialized paths, and the indexes the comment listings page on.
+ALTER TABLE comment
+  ADD COLUMN parent_id BIGINT,
+  ADD COLUMN path VARCHAR(637),
+  ADD COLUMN depth INTEGER,
+  ADD COLUMN reply_count INTEGER,
+  ADD CONSTRAINT fk_comment_parent FOREIGN KEY (parent_id) REFERENCES comment (id);
+
+-- Comments written before threading have no parent, so each one becomes a top-level thread whose path is its id
+-- as 13 base36 digits (see CommentPath).
+UPDATE comment
+SET path = LPAD(LOWER(CONV(id, 10, 36)), 13, '0'),
+    depth = 0,
+    reply_count = 0
+WHERE path IS NULL;
+
+ALTER TABLE comment
+  ADD INDEX idx_comment_post_path (post_id, path),
+  ADD INDEX idx_comment_post_depth_path (post_id, depth, path),
+  ADD INDEX idx_comment_post_created (post_id, created_date, id),
+  ADD INDEX idx_comment_user_created (user_id, created_date, id);
@@ -0,0 +1,14 @@
+-- Notification emails queued in the transaction that triggered them, sent by MailDispatcher
+CREATE TABLE outbox_email (
+  id              BIGINT       NOT NULL,
+  recipient       VARCHAR(255),
+  subject         VARCHAR(255),
+  body            LONGTEXT,
+  status          VARCHAR(255),
+  attempts        INTEGER,
+  next_attempt_at DATETIME(6),
+  created_date    DATETIME(6),
+  last_error      VARCHAR(255),
+  PRIMARY KEY (id),
+  INDEX idx_outbox_email_due (status, next_attempt_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,18 @@
+-- Refresh tokens are now stored as hashes and bound to a user. The old rows hold the token itself and no user, so
+-- they cannot be converted; they are kept readable under a new name instead, and RefreshTokenService still
+-- accepts them until they expire, swapping each one for a new token the first time it is used.
+RENAME TABLE refresh_token TO legacy_refresh_token;
+
+CREATE INDEX idx_legacy_refresh_token_token ON legacy_refresh_token (token);
+CREATE INDEX idx_legacy_refresh_token_created ON legacy_refresh_token (created_date);
+
+CREATE TABLE refresh_token (
+  token_hash   VARCHAR(43) NOT NULL,
+  user_id      BIGINT      NOT NULL,
+  created_date DATETIME(6),
+  expiry_date  DATETIME(6),
+  PRIMARY KEY (token_hash),
+  INDEX idx_refresh_token_user (user_id),
+  INDEX idx_refresh_token_expiry (expiry_date),
+  CONSTRAINT fk_refresh_token_user FOREIGN KEY (user_id) REFERENCES user (user_id)
+) ENGINE = InnoDB;
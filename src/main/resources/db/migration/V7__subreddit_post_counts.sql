@@ -0,0 +1,8 @@
+-- Subreddit.posts is now the inverse of Post.subreddit, so the join table Hibernate used to keep for it is unused.
+DROP TABLE IF EXISTS subreddit_posts;
+
+-- Denormalized post count, incremented by PostService.save; filled here for the existing subreddits.
+ALTER TABLE subreddit ADD COLUMN post_count INTEGER;
+
+UPDATE subreddit s
+SET post_count = (SELECT COUNT(*) FROM post p WHERE p.id = s.id);
@@ -0,0 +1,11 @@
+CREATE TABLE subscription (
+  id           BIGINT NOT NULL,
+  user_id      BIGINT NOT NULL,
+  subreddit_id BIGINT NOT NULL,
+  created_date DATETIME(6),
+  PRIMARY KEY (id),
+  CONSTRAINT uk_subscription_user_subreddit UNIQUE (user_id, subreddit_id),
+  INDEX idx_subscription_subreddit (subreddit_id),
+  CONSTRAINT fk_subscription_user FOREIGN KEY (user_id) REFERENCES user (user_id),
+  CONSTRAINT fk_subscription_subreddit FOREIGN KEY (subreddit_id) REFERENCES subreddit (id)
+) ENGINE = InnoDB;
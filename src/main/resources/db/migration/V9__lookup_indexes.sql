@@ -0,0 +1,7 @@
+-- Indexes for the finders that used to scan their whole table:
+-- UserRepository.findByUsername, VerificationTokenRepository.findByToken and SubredditRepository.findByName.
+-- They are unique as well, so a duplicate signup or subreddit now fails instead of making later lookups ambiguous.
+-- On an existing database, remove any duplicates first or these statements will fail.
+CREATE UNIQUE INDEX uk_user_username ON user (username);
+CREATE UNIQUE INDEX uk_token_token ON token (token);
+CREATE UNIQUE INDEX uk_subreddit_name ON subreddit (name);
@@ -0,0 +1,145 @@
+package com.example.springredditclone;
+
+import com.example.springredditclone.config.SqlBudgetProperties;
+import com.example.springredditclone.model.Comment;
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.User;
+import com.example.springredditclone.repository.CommentRepository;
+import com.example.springredditclone.repository.PostRepository;
+import com.example.springredditclone.repository.SubredditRepository;
+import com.example.springredditclone.repository.UserRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.example.springredditclone.TestEntities.comment;
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the read endpoints through the whole filter chain on H2 and reads the statement count back from the
+ * Server-Timing header written by SqlStatisticsFilter. With sql.budget.fail-on-exceed, a request over its budget
+ * fails the test, so a new N+1 on these paths shows up here.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "sql.budget.fail-on-exceed=true")
+@AutoConfigureMockMvc
+public class SqlStatementBudgetTests {
+  private static final Pattern STATEMENTS = Pattern.compile("(\\d+) statements");
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private SqlBudgetProperties budgetProperties;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+  @Autowired
+  private UserRepository userRepository;
+  @Autowired
+  private SubredditRepository subredditRepository;
+  @Autowired
+  private PostRepository postRepository;
+  @Autowired
+  private CommentRepository commentRepository;
+
+  private User user;
+  private Post post;
+
+  @Before
+  public void setUp() {
+    // The database lives as long as the cached context, so every test gets its own user, subreddit and post
+    int n = SEQUENCE.incrementAndGet();
+    transactionTemplate.execute(status -> {
+      user = userRepository.save(user("alice" + n));
+      Subreddit subreddit = subredditRepository.save(subreddit("/r/java" + n, user));
+      for (int i = 0; i < 5; i++) {
+        post = postRepository.save(post("post " + i, user, subreddit));
+      }
+      return null;
+    });
+  }
+
+  @Test
+  public void feedPageRunsOneStatement() throws Exception {
+    assertThat(statements("/api/posts?limit=10")).isEqualTo(1);
+  }
+
+  @Test
+  public void postRunsOneStatement() throws Exception {
+    assertThat(statements("/api/posts/" + post.getPostId())).isEqualTo(1);
+  }
+
+  @Test
+  public void commentPageRunsOneStatement() throws Exception {
+    addThreads(3, 2);
+
+    assertThat(statements("/api/comments/by-post/" + post.getPostId() + "?limit=20")).isEqualTo(1);
+  }
+
+  @Test
+  public void commentThreadsDoNotRunAStatementPerComment() throws Exception {
+    addThreads(1, 1);
+    int oneThread = statements("/api/comments/by-post/" + post.getPostId() + "/threads");
+
+    addThreads(4, 3);
+    int fiveThreads = statements("/api/comments/by-post/" + post.getPostId() + "/threads");
+
+    assertThat(fiveThreads).isEqualTo(oneThread).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  public void requestOverItsBudgetFails() {
+    // Finding the user and then their posts takes at least two statements
+    SqlBudgetProperties.Route route = new SqlBudgetProperties.Route();
+    route.setPattern("/api/posts/by-user/**");
+    route.setMaxStatements(1);
+    budgetProperties.getRoutes().add(0, route);
+    try {
+      assertThatThrownBy(() -> mockMvc.perform(get("/api/posts/by-user/" + user.getUsername())))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("its budget is 1");
+    } finally {
+      budgetProperties.getRoutes().remove(route);
+    }
+  }
+
+  private int statements(String uri) throws Exception {
+    MvcResult result = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn();
+    String serverTiming = result.getResponse().getHeader("Server-Timing");
+    assertThat(serverTiming).isNotNull();
+    Matcher matcher = STATEMENTS.matcher(serverTiming);
+    assertThat(matcher.find()).isTrue();
+    return Integer.parseInt(matcher.group(1));
+  }
+
+  // Top-level comments on the post, each with the given number of replies below it
+  private void addThreads(int threads, int replies) {
+    transactionTemplate.execute(status -> {
+      for (int i = 0; i < threads; i++) {
+        Comment root = commentRepository.save(comment(post, user, null));
+        for (int j = 0; j < replies; j++) {
+          commentRepository.save(comment(post, user, root));
+        }
+      }
+      return null;
+    });
+  }
+}
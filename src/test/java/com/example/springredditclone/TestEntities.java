@@ -0,0 +1,58 @@
+package com.example.springredditclone;
+
+import com.example.springredditclone.model.Comment;
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.User;
+
+import java.time.Instant;
+
+/**
+ * Unsaved entities with every required field filled, for tests to persist through a TestEntityManager or a
+ * repository.
+ * */
+public final class TestEntities {
+
+  private TestEntities() {
+  }
+
+  public static User user(String username) {
+    User user = new User();
+    user.setUsername(username);
+    user.setPassword("secret");
+    user.setEmail(username + "@example.com");
+    user.setCreated(Instant.now());
+    user.setEnabled(true);
+    return user;
+  }
+
+  public static Subreddit subreddit(String name, User user) {
+    return Subreddit.builder()
+      .name(name)
+      .description("Java")
+      .createdDate(Instant.now())
+      .user(user)
+      .build();
+  }
+
+  public static Post post(String name, User user, Subreddit subreddit) {
+    return Post.builder()
+      .postName(name)
+      .user(user)
+      .subreddit(subreddit)
+      .createdDate(Instant.now())
+      .build();
+  }
+
+  // The path is set by the id generator when the comment is persisted
+  public static Comment comment(Post post, User user, Comment parent) {
+    Comment comment = new Comment();
+    comment.setText("comment");
+    comment.setPost(post);
+    comment.setUser(user);
+    comment.setCreatedDate(Instant.now());
+    comment.setParent(parent);
+    comment.setDepth(parent == null ? 0 : parent.getDepth() + 1);
+    return comment;
+  }
+}
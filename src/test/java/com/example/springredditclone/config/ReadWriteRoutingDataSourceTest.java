@@ -0,0 +1,107 @@
+package com.example.springredditclone.config;
+
+import com.example.springredditclone.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+public class ReadWriteRoutingDataSourceTest {
+  private EmbeddedDatabase primary;
+  private EmbeddedDatabase replica;
+  private SimpleMeterRegistry meterRegistry;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate writeTransaction;
+  private TransactionTemplate readOnlyTransaction;
+
+  @Before
+  public void setUp() {
+    primary = database("primary");
+    replica = database("replica");
+    meterRegistry = new SimpleMeterRegistry();
+    ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica,
+      new ReadYourWritesTracker(60000), meterRegistry);
+    routing.afterPropertiesSet();
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    writeTransaction = new TransactionTemplate(transactionManager);
+    readOnlyTransaction = new TransactionTemplate(transactionManager);
+    readOnlyTransaction.setReadOnly(true);
+  }
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    primary.shutdown();
+    replica.shutdown();
+  }
+
+  @Test
+  public void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+    assertThat(readOnlyTransaction.execute(status -> databaseName())).isEqualTo("replica");
+    assertThat(writeTransaction.execute(status -> databaseName())).isEqualTo("primary");
+    assertThat(meterRegistry.get("datasource.routing").tag("target", "replica").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void readsStayOnThePrimaryRightAfterTheSameUserWrites() {
+    signIn();
+
+    writeTransaction.execute(status -> jdbcTemplate.update("update database_name set name = name"));
+
+    assertThat(readOnlyTransaction.execute(status -> databaseName())).isEqualTo("primary");
+    assertThat(meterRegistry.get("datasource.routing").tag("reason", "read-your-writes").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void transactionThatOnlyReadsDoesNotPinTheUserToThePrimary() {
+    signIn();
+
+    assertThat(writeTransaction.execute(status -> databaseName())).isEqualTo("primary");
+
+    assertThat(readOnlyTransaction.execute(status -> databaseName())).isEqualTo("replica");
+  }
+
+  @Test
+  public void rolledBackWriteDoesNotPinTheUserToThePrimary() {
+    signIn();
+
+    writeTransaction.execute(status -> {
+      jdbcTemplate.update("update database_name set name = name");
+      status.setRollbackOnly();
+      return null;
+    });
+
+    assertThat(readOnlyTransaction.execute(status -> databaseName())).isEqualTo("replica");
+  }
+
+  private static void signIn() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+      new UserPrincipal(42L, "alice", "", true, Collections.emptyList()), null, Collections.emptyList()));
+  }
+
+  private String databaseName() {
+    return jdbcTemplate.queryForObject("select name from database_name", String.class);
+  }
+
+  private static EmbeddedDatabase database(String name) {
+    EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(H2).setName(name).build();
+    new JdbcTemplate(database).execute("create table database_name (name varchar(16))");
+    new JdbcTemplate(database).update("insert into database_name values (?)", name);
+    return database;
+  }
+}
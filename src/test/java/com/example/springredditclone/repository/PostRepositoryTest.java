@@ -0,0 +1,53 @@
+package com.example.springredditclone.repository;
+
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class PostRepositoryTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private PostRepository postRepository;
+
+  @Test
+  public void feedPageLoadsUserAndSubredditInOneStatement() {
+    User user = entityManager.persist(user("alice"));
+    Subreddit subreddit = entityManager.persist(subreddit("/r/java", user));
+    for (int i = 0; i < 5; i++) {
+      entityManager.persist(post("post " + i, user, subreddit));
+    }
+    entityManager.flush();
+    entityManager.clear();
+    Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+      .unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    Slice<Post> page = postRepository.findAllByOrderByCreatedDateDescPostIdDesc(PageRequest.of(0, 10));
+    page.forEach(post -> {
+      assertThat(post.getUser().getUsername()).isEqualTo("alice");
+      assertThat(post.getSubreddit().getName()).isEqualTo("/r/java");
+    });
+
+    assertThat(page.getContent()).hasSize(5);
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+}
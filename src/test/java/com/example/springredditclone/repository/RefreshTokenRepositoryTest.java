@@ -0,0 +1,57 @@
+package com.example.springredditclone.repository;
+
+import com.example.springredditclone.model.RefreshToken;
+import com.example.springredditclone.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.example.springredditclone.TestEntities.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class RefreshTokenRepositoryTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private RefreshTokenRepository refreshTokenRepository;
+
+  @Test
+  public void sweepDeletesOneBoundedBatchOfExpiredTokens() {
+    User user = entityManager.persist(user("alice"));
+    Instant now = Instant.now();
+    for (int i = 0; i < 3; i++) {
+      entityManager.persist(token("expired" + i, user, now.minusSeconds(60)));
+    }
+    entityManager.persist(token("valid", user, now.plusSeconds(60)));
+    entityManager.flush();
+
+    List<String> batch = refreshTokenRepository.findExpiredTokenHashes(now, PageRequest.of(0, 2));
+    assertThat(batch).hasSize(2).allMatch(hash -> hash.startsWith("expired"));
+    assertThat(refreshTokenRepository.deleteByTokenHashIn(batch)).isEqualTo(2);
+
+    List<String> rest = refreshTokenRepository.findExpiredTokenHashes(now, PageRequest.of(0, 2));
+    assertThat(rest).hasSize(1);
+    assertThat(refreshTokenRepository.deleteByTokenHashIn(rest)).isEqualTo(1);
+    assertThat(refreshTokenRepository.findExpiredTokenHashes(now, PageRequest.of(0, 2))).isEmpty();
+    assertThat(refreshTokenRepository.findById("valid")).isPresent();
+  }
+
+  private static RefreshToken token(String tokenHash, User user, Instant expiryDate) {
+    return RefreshToken.builder()
+      .tokenHash(tokenHash)
+      .user(user)
+      .createdDate(Instant.now())
+      .expiryDate(expiryDate)
+      .build();
+  }
+}
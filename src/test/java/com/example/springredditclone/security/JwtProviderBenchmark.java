@@ -0,0 +1,74 @@
+package com.example.springredditclone.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens signed and verified per second with each supported algorithm: the RSA key in rsa.jks, the P-256 key in
+ * ec.jks, and an HMAC secret. Runs on several threads sharing one JwtProvider like request threads do. Not part of
+ * the test run; start it with main() after test-compile.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtProviderBenchmark {
+
+  @Param({"RS256", "ES256", "HS256"})
+  public String algorithm;
+
+  private JwtProvider jwtProvider;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    switch (algorithm) {
+      case "ES256":
+        jwtProvider = JwtProviderTest.provider(new ClassPathResource("jwt/ec.jks"), new MockEnvironment());
+        break;
+      case "HS256":
+        MockEnvironment environment = new MockEnvironment()
+          .withProperty("jwt.signing.key-id", "hmac-1")
+          .withProperty("jwt.hmac.hmac-1.secret", JwtProviderTest.HMAC_SECRET);
+        jwtProvider = JwtProviderTest.provider(new ClassPathResource("jwt/rsa.jks"), environment, "hmac-1");
+        break;
+      default:
+        jwtProvider = JwtProviderTest.provider(new ClassPathResource("jwt/rsa.jks"), new MockEnvironment());
+    }
+    token = jwtProvider.generateToken(42L, "alice", true);
+  }
+
+  @Benchmark
+  public String sign() {
+    return jwtProvider.generateToken(42L, "alice", true);
+  }
+
+  @Benchmark
+  public UserPrincipal verify() {
+    return jwtProvider.getPrincipal(jwtProvider.parseClaims(token));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(JwtProviderBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,169 @@
+package com.example.springredditclone.security;
+
+import com.example.springredditclone.exception.SpringRedditException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Uses the keystores in src/test/resources/jwt: rsa.jks holds rsa-1, rotated.jks holds the same rsa-1 plus a newer
+ * rsa-2, and ec.jks holds the P-256 key ec-1. All use the password "secret".
+ * */
+public class JwtProviderTest {
+  static final String HMAC_SECRET = Encoders.BASE64.encode(new byte[32]);
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void rs256TokenRoundTrips() {
+    JwtProvider jwtProvider = provider(new ClassPathResource("jwt/rsa.jks"), new MockEnvironment());
+
+    String token = jwtProvider.generateToken(42L, "alice", true);
+
+    assertThat(header(token)).contains("\"kid\":\"rsa-1\"").contains("\"alg\":\"RS256\"");
+    assertPrincipal(jwtProvider, token);
+  }
+
+  @Test
+  public void es256TokenRoundTrips() {
+    JwtProvider jwtProvider = provider(new ClassPathResource("jwt/ec.jks"), new MockEnvironment());
+
+    String token = jwtProvider.generateToken(42L, "alice", true);
+
+    assertThat(header(token)).contains("\"kid\":\"ec-1\"").contains("\"alg\":\"ES256\"");
+    assertPrincipal(jwtProvider, token);
+  }
+
+  @Test
+  public void hs256TokenRoundTrips() {
+    MockEnvironment environment = new MockEnvironment()
+      .withProperty("jwt.signing.key-id", "hmac-1")
+      .withProperty("jwt.hmac.hmac-1.secret", HMAC_SECRET);
+    JwtProvider jwtProvider = provider(new ClassPathResource("jwt/rsa.jks"), environment, "hmac-1");
+
+    String token = jwtProvider.generateToken(42L, "alice", true);
+
+    assertThat(header(token)).contains("\"kid\":\"hmac-1\"").contains("\"alg\":\"HS256\"");
+    assertPrincipal(jwtProvider, token);
+  }
+
+  @Test
+  public void tokenSignedWithTheOldKeyStillVerifiesAfterRotation() throws Exception {
+    File keyStore = temporaryFolder.newFile("springblog.jks");
+    copy("jwt/rsa.jks", keyStore);
+    JwtProvider jwtProvider = provider(new FileSystemResource(keyStore), new MockEnvironment());
+    String oldToken = jwtProvider.generateToken(42L, "alice", true);
+
+    copy("jwt/rotated.jks", keyStore);
+    jwtProvider.reloadKeys();
+    String newToken = jwtProvider.generateToken(42L, "alice", true);
+
+    assertThat(header(oldToken)).contains("\"kid\":\"rsa-1\"");
+    assertThat(header(newToken)).contains("\"kid\":\"rsa-2\"");
+    assertPrincipal(jwtProvider, oldToken);
+    assertPrincipal(jwtProvider, newToken);
+  }
+
+  @Test
+  public void newKeyDoesNotSignBeforeItsActivationDelay() {
+    JwtProvider jwtProvider = provider(new ClassPathResource("jwt/rotated.jks"), new MockEnvironment());
+    ReflectionTestUtils.setField(jwtProvider, "activationDelayMillis", Duration.ofDays(36500).toMillis());
+    jwtProvider.reloadKeys();
+
+    assertThat(header(jwtProvider.generateToken(42L, "alice", true))).contains("\"kid\":\"rsa-1\"");
+  }
+
+  @Test
+  public void hs256TokenNamingAnRsaKeyIsRejected() throws Exception {
+    JwtProvider jwtProvider = provider(new ClassPathResource("jwt/rsa.jks"), new MockEnvironment());
+    // The classic confusion attack: an HMAC signature keyed with the RSA public key, which anyone can have
+    String token = Jwts.builder()
+      .setHeaderParam("kid", "rsa-1")
+      .setSubject("alice")
+      .signWith(Keys.hmacShaKeyFor(publicKey("jwt/rsa.jks", "rsa-1").getEncoded()), SignatureAlgorithm.HS256)
+      .compact();
+
+    assertThatThrownBy(() -> jwtProvider.parseClaims(token))
+      .isInstanceOf(SpringRedditException.class)
+      .hasMessageContaining("does not sign with HS256");
+  }
+
+  @Test
+  public void tokenWithAnUnknownKeyIdIsRejected() {
+    JwtProvider jwtProvider = provider(new ClassPathResource("jwt/rsa.jks"), new MockEnvironment());
+    String token = Jwts.builder()
+      .setHeaderParam("kid", "unknown")
+      .setSubject("alice")
+      .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(HMAC_SECRET)), SignatureAlgorithm.HS256)
+      .compact();
+
+    assertThatThrownBy(() -> jwtProvider.parseClaims(token))
+      .isInstanceOf(SpringRedditException.class)
+      .hasMessageContaining("Unknown JWT signing key unknown");
+  }
+
+  static JwtProvider provider(Resource keyStore, MockEnvironment environment, String... hmacKeyIds) {
+    JwtProvider jwtProvider = new JwtProvider();
+    ReflectionTestUtils.setField(jwtProvider, "jwtExpirationInMillis", 900000L);
+    ReflectionTestUtils.setField(jwtProvider, "keyStoreLocation", keyStore);
+    ReflectionTestUtils.setField(jwtProvider, "activationDelayMillis", 0L);
+    List<String> keyIds = hmacKeyIds.length == 0 ? Collections.emptyList() : Arrays.asList(hmacKeyIds);
+    ReflectionTestUtils.setField(jwtProvider, "hmacKeyIds", keyIds);
+    ReflectionTestUtils.setField(jwtProvider, "environment", environment);
+    jwtProvider.init();
+    return jwtProvider;
+  }
+
+  private static void assertPrincipal(JwtProvider jwtProvider, String token) {
+    Claims claims = jwtProvider.parseClaims(token);
+    UserPrincipal principal = jwtProvider.getPrincipal(claims);
+    assertThat(principal.getUserId()).isEqualTo(42L);
+    assertThat(principal.getUsername()).isEqualTo("alice");
+    assertThat(principal.isEnabled()).isTrue();
+  }
+
+  private static String header(String token) {
+    return new String(Decoders.BASE64URL.decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+  }
+
+  private static void copy(String resource, File target) throws Exception {
+    try (InputStream inputStream = new ClassPathResource(resource).getInputStream()) {
+      Files.copy(inputStream, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static PublicKey publicKey(String resource, String alias) throws Exception {
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    try (InputStream inputStream = new ClassPathResource(resource).getInputStream()) {
+      keyStore.load(inputStream, "secret".toCharArray());
+    }
+    return keyStore.getCertificate(alias).getPublicKey();
+  }
+}
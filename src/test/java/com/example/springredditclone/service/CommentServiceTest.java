@@ -0,0 +1,108 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.dto.CommentsDto;
+import com.example.springredditclone.dto.CursorPage;
+import com.example.springredditclone.mapper.CommentMapperImpl;
+import com.example.springredditclone.model.Comment;
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.springredditclone.TestEntities.comment;
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static com.example.springredditclone.util.Constants.MAX_PAGE_SIZE;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pages a thread with more replies than one thread page may return, so the node budget cuts it short and the
+ * cursor has to resume in the middle of it.
+ * */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({CommentService.class, CommentMapperImpl.class})
+public class CommentServiceTest {
+  private static final int REPLIES = CommentService.MAX_THREAD_NODES + 10;
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private CommentService commentService;
+  @MockBean
+  private AuthService authService;
+  @MockBean
+  private MailContentBuilder mailContentBuilder;
+  @MockBean
+  private MailService mailService;
+
+  private Post post;
+  private Comment bigThread;
+  // Every comment in thread order: the big thread, then a small one after it
+  private final List<Long> threadOrder = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    User user = entityManager.persist(user("alice"));
+    post = entityManager.persist(post("post", user, entityManager.persist(subreddit("/r/java", user))));
+    bigThread = entityManager.persist(comment(post, user, null));
+    threadOrder.add(bigThread.getId());
+    for (int i = 0; i < REPLIES; i++) {
+      threadOrder.add(entityManager.persist(comment(post, user, bigThread)).getId());
+    }
+    Comment smallThread = entityManager.persist(comment(post, user, null));
+    threadOrder.add(smallThread.getId());
+    threadOrder.add(entityManager.persist(comment(post, user, smallThread)).getId());
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  public void threadCutShortByTheNodeBudgetContinuesOnTheNextPage() {
+    CursorPage<CommentsDto> first = commentService.getThreads(post.getPostId(), null, 10, 1);
+    assertThat(first.getItems()).hasSize(CommentService.MAX_THREAD_NODES);
+    assertThat(first.getNext()).isNotNull();
+
+    // The rest of the big thread, then the small thread that did not fit on the first page
+    CursorPage<CommentsDto> second = commentService.getThreads(post.getPostId(), first.getNext(), 10, 1);
+    assertThat(second.getItems()).hasSize(threadOrder.size() - CommentService.MAX_THREAD_NODES);
+    assertThat(second.getNext()).isNull();
+
+    List<Long> ids = ids(first);
+    ids.addAll(ids(second));
+    assertThat(ids).isEqualTo(threadOrder);
+  }
+
+  @Test
+  public void repliesArePagedInThreadOrder() {
+    List<Long> ids = new ArrayList<>();
+    int pages = 0;
+    String after = null;
+    do {
+      CursorPage<CommentsDto> page = commentService.getReplies(bigThread.getId(), after, 1, MAX_PAGE_SIZE);
+      assertThat(page.getItems()).hasSizeLessThanOrEqualTo(MAX_PAGE_SIZE);
+      ids.addAll(ids(page));
+      after = page.getNext();
+      pages++;
+    } while (after != null);
+
+    assertThat(ids).isEqualTo(threadOrder.subList(1, REPLIES + 1));
+    assertThat(pages).isEqualTo((REPLIES + MAX_PAGE_SIZE - 1) / MAX_PAGE_SIZE);
+  }
+
+  private static List<Long> ids(CursorPage<CommentsDto> page) {
+    return page.getItems().stream().map(CommentsDto::getId).collect(toList());
+  }
+}
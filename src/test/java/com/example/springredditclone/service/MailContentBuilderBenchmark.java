@@ -0,0 +1,53 @@
+package com.example.springredditclone.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to render one email body, with the templates already parsed and cached. Runs on several threads, since
+ * every thread renders into its own buffer. Not part of the test run; start it with main() after test-compile.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MailContentBuilderBenchmark {
+
+  private MailContentBuilder mailContentBuilder;
+
+  @Setup
+  public void setUp() {
+    mailContentBuilder = MailContentBuilderTest.mailContentBuilder();
+  }
+
+  @Benchmark
+  public String activationEmail() {
+    return mailContentBuilder.buildActivationEmail("http://localhost:8080/api/auth/accountVerification/abc");
+  }
+
+  @Benchmark
+  public String commentNotification() {
+    return mailContentBuilder.buildCommentNotification("alice", "http://localhost:8080/api/posts/42");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MailContentBuilderBenchmark.class.getSimpleName()).build()).run();
+  }
+}
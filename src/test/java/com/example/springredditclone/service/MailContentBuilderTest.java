@@ -0,0 +1,77 @@
+package com.example.springredditclone.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.StringUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Renders the real templates, so a body that ends up nested inside another template (or inside itself) shows up as
+ * a second html element.
+ * */
+public class MailContentBuilderTest {
+
+  private MailContentBuilder mailContentBuilder;
+
+  @Before
+  public void setUp() {
+    mailContentBuilder = mailContentBuilder();
+  }
+
+  @Test
+  public void activationEmailIsRenderedOnce() {
+    String body = mailContentBuilder.buildActivationEmail("http://localhost:8080/api/auth/accountVerification/abc");
+
+    assertRenderedOnce(body);
+    assertThat(body).contains("please click on the below url to activate your account");
+    assertThat(StringUtils.countOccurrencesOf(body, "http://localhost:8080/api/auth/accountVerification/abc"))
+      .isEqualTo(2);
+  }
+
+  @Test
+  public void commentNotificationIsRenderedOnce() {
+    String body = mailContentBuilder.buildCommentNotification("alice", "http://localhost:8080/api/posts/42");
+
+    assertRenderedOnce(body);
+    assertThat(body).contains("alice posted a comment on your post.");
+    assertThat(body).contains("href=\"http://localhost:8080/api/posts/42\"");
+  }
+
+  @Test
+  public void commentNotificationLeavesOutAnEmptyLink() {
+    String body = mailContentBuilder.buildCommentNotification("alice", "");
+
+    assertRenderedOnce(body);
+    assertThat(body).doesNotContain("<a");
+  }
+
+  @Test
+  public void reusedBufferDoesNotCarryOverThePreviousEmail() {
+    mailContentBuilder.buildActivationEmail("http://localhost:8080/api/auth/accountVerification/abc");
+    String body = mailContentBuilder.buildCommentNotification("alice", "http://localhost:8080/api/posts/42");
+
+    assertRenderedOnce(body);
+    assertThat(body).doesNotContain("accountVerification");
+  }
+
+  // Resolves the templates from the classpath the way Spring Boot's Thymeleaf setup does
+  static MailContentBuilder mailContentBuilder() {
+    ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+    resolver.setPrefix("templates/");
+    resolver.setSuffix(".html");
+    resolver.setTemplateMode(TemplateMode.HTML);
+    TemplateEngine templateEngine = new TemplateEngine();
+    templateEngine.setTemplateResolver(resolver);
+    return new MailContentBuilder(templateEngine);
+  }
+
+  private static void assertRenderedOnce(String body) {
+    assertThat(StringUtils.countOccurrencesOf(body, "<html")).isEqualTo(1);
+    assertThat(StringUtils.countOccurrencesOf(body, "<body")).isEqualTo(1);
+    assertThat(body.trim()).startsWith("<!DOCTYPE html>").endsWith("</html>");
+  }
+}
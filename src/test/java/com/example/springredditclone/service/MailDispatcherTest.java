@@ -0,0 +1,195 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.model.NotificationEmail;
+import com.example.springredditclone.model.OutboxEmail;
+import com.example.springredditclone.model.OutboxStatus;
+import com.example.springredditclone.repository.OutboxEmailRepository;
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.internet.MimeMessage;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sends the outbox to an in-process SMTP server. The test transaction is turned off so that queueing really
+ * commits (or rolls back) before MailDispatcher looks at the table, and the mail pool runs batches inline.
+ * */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({MailService.class, MailDispatcher.class})
+@TestPropertySource(properties = "mail.outbox.poll-interval=3600000")
+public class MailDispatcherTest {
+
+  @Rule
+  public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+
+  @Autowired
+  private MailService mailService;
+  @Autowired
+  private MailDispatcher mailDispatcher;
+  @Autowired
+  private OutboxEmailRepository outboxEmailRepository;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @After
+  public void clearOutbox() {
+    outboxEmailRepository.deleteAll();
+  }
+
+  @Test
+  public void queuedEmailIsSentAfterCommitAndRemoved() throws Exception {
+    transactionTemplate.execute(status -> {
+      mailService.queueMail(new NotificationEmail("Welcome", "alice@example.com", "<p>Hello</p>"));
+      return null;
+    });
+    // Queueing only writes the row; nothing goes out until the dispatcher picks it up
+    assertThat(greenMail.getReceivedMessages()).isEmpty();
+    assertThat(single().getStatus()).isEqualTo(OutboxStatus.PENDING);
+
+    mailDispatcher.dispatch();
+
+    assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+    MimeMessage[] received = greenMail.getReceivedMessages();
+    assertThat(received).hasSize(1);
+    assertThat(received[0].getSubject()).isEqualTo("Welcome");
+    assertThat(received[0].getAllRecipients()[0].toString()).isEqualTo("alice@example.com");
+    assertThat(outboxEmailRepository.count()).isZero();
+  }
+
+  @Test
+  public void nothingIsSentWhenTheTransactionRollsBack() {
+    transactionTemplate.execute(status -> {
+      mailService.queueMail(new NotificationEmail("Welcome", "alice@example.com", "<p>Hello</p>"));
+      status.setRollbackOnly();
+      return null;
+    });
+
+    mailDispatcher.dispatch();
+
+    assertThat(outboxEmailRepository.count()).isZero();
+    assertThat(greenMail.getReceivedMessages()).isEmpty();
+  }
+
+  @Test
+  public void queueingOutsideATransactionIsRejected() {
+    assertThatThrownBy(() -> mailService.queueMail(new NotificationEmail("Welcome", "alice@example.com", "<p>Hello</p>")))
+      .isInstanceOf(IllegalTransactionStateException.class);
+    assertThat(outboxEmailRepository.count()).isZero();
+  }
+
+  @Test
+  public void failedSendBacksOffAndCountsTheAttempt() {
+    outboxEmailRepository.save(email(0, Instant.now()));
+    greenMail.stop();
+
+    Instant before = Instant.now();
+    mailDispatcher.dispatch();
+    Instant after = Instant.now();
+
+    OutboxEmail email = single();
+    assertThat(email.getStatus()).isEqualTo(OutboxStatus.PENDING);
+    assertThat(email.getAttempts()).isEqualTo(1);
+    assertThat(email.getLastError()).isNotEmpty();
+    assertThat(email.getNextAttemptAt())
+      .isBetween(before.plus(MailDispatcher.INITIAL_BACKOFF), after.plus(MailDispatcher.INITIAL_BACKOFF));
+
+    // Backed off, so the next poll leaves it alone
+    mailDispatcher.dispatch();
+    assertThat(single().getAttempts()).isEqualTo(1);
+  }
+
+  @Test
+  public void emailIsMarkedFailedAfterMaxAttempts() {
+    outboxEmailRepository.save(email(MailDispatcher.MAX_ATTEMPTS - 1, Instant.now()));
+    greenMail.stop();
+
+    mailDispatcher.dispatch();
+
+    OutboxEmail email = single();
+    assertThat(email.getStatus()).isEqualTo(OutboxStatus.FAILED);
+    assertThat(email.getAttempts()).isEqualTo(MailDispatcher.MAX_ATTEMPTS);
+  }
+
+  @Test
+  public void emailWithAnExpiredLeaseIsClaimedAgain() {
+    Instant now = Instant.now();
+    // Claimed by a node that died before sending: its lease ran out a second ago
+    OutboxEmail abandoned = outboxEmailRepository.save(email(0, now.minusSeconds(1)));
+    // Still leased by a live node
+    OutboxEmail leased = outboxEmailRepository.save(email(0, now.plus(MailDispatcher.CLAIM_LEASE)));
+
+    mailDispatcher.dispatch();
+
+    assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+    assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    assertThat(outboxEmailRepository.findById(abandoned.getId())).isNotPresent();
+    assertThat(outboxEmailRepository.findById(leased.getId())).isPresent();
+  }
+
+  private OutboxEmail single() {
+    List<OutboxEmail> emails = outboxEmailRepository.findAll();
+    assertThat(emails).hasSize(1);
+    return emails.get(0);
+  }
+
+  private static OutboxEmail email(int attempts, Instant nextAttemptAt) {
+    return OutboxEmail.builder()
+      .recipient("alice@example.com")
+      .subject("Welcome")
+      .body("<p>Hello</p>")
+      .status(OutboxStatus.PENDING)
+      .attempts(attempts)
+      .nextAttemptAt(nextAttemptAt)
+      .createdDate(Instant.now())
+      .build();
+  }
+
+  @TestConfiguration
+  static class SmtpConfig {
+
+    @Bean
+    public JavaMailSender mailSender() {
+      JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+      mailSender.setHost("localhost");
+      mailSender.setPort(ServerSetupTest.SMTP.getPort());
+      return mailSender;
+    }
+
+    // Runs each batch on the calling thread, so a test can check the outcome as soon as dispatch() returns
+    @Bean
+    public ThreadPoolTaskExecutor mailExecutor() {
+      ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+        @Override
+        public void execute(Runnable task) {
+          task.run();
+        }
+      };
+      executor.setQueueCapacity(1);
+      return executor;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.model.PendingVoteDelta;
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.PostSort;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.TimeWindow;
+import com.example.springredditclone.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes posts and votes straight to the database, the way another instance would, so this instance only learns
+ * about them from its own sync.
+ * */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(PostRankingService.class)
+public class PostRankingServiceTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private PostRankingService postRankingService;
+
+  @Test
+  public void redecayPicksUpPostsAndVotesFromOtherInstances() {
+    User user = entityManager.persist(user("alice"));
+    Subreddit subreddit = entityManager.persist(subreddit("/r/java", user));
+    Post older = entityManager.persist(post("older", user, subreddit));
+    Post newer = entityManager.persist(post("newer", user, subreddit));
+    entityManager.flush();
+    assertThat(postRankingService.page(null, PostSort.TOP, TimeWindow.ALL, null, 10).getItems()).isEmpty();
+
+    postRankingService.redecay();
+
+    assertThat(postRankingService.page(null, PostSort.TOP, TimeWindow.ALL, null, 10).getItems())
+      .containsExactly(newer.getPostId(), older.getPostId());
+
+    // Two votes already flushed into the post row and three still waiting in the buffer
+    older.setVoteCount(2);
+    entityManager.persist(PendingVoteDelta.builder().postId(older.getPostId()).delta(3).build());
+    entityManager.flush();
+
+    postRankingService.redecay();
+
+    assertThat(postRankingService.page(null, PostSort.TOP, TimeWindow.ALL, null, 10).getItems())
+      .containsExactly(older.getPostId(), newer.getPostId());
+    assertThat(postRankingService.page(subreddit.getId(), PostSort.RISING, null, null, 10).getItems())
+      .first().isEqualTo(older.getPostId());
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.dto.CursorPage;
+import com.example.springredditclone.dto.PostResponse;
+import com.example.springredditclone.mapper.PostMapperImpl;
+import com.example.springredditclone.model.PostSort;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a feed page through PostService and PostMapper, so a lazy association touched while mapping (the author,
+ * the subreddit, the comments for a count) shows up as an extra statement.
+ * */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({PostService.class, PostMapperImpl.class})
+public class PostServiceTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private PostService postService;
+  @MockBean
+  private SubredditDirectory subredditDirectory;
+  @MockBean
+  private AuthService authService;
+  @MockBean
+  private PostRankingService postRankingService;
+  @MockBean
+  private HomeFeedService homeFeedService;
+
+  @Test
+  public void newestPageIsOneStatementIncludingMapping() {
+    User user = entityManager.persist(user("alice"));
+    Subreddit subreddit = entityManager.persist(subreddit("/r/java", user));
+    for (int i = 0; i < 5; i++) {
+      entityManager.persist(post("post " + i, user, subreddit));
+    }
+    entityManager.flush();
+    entityManager.clear();
+    Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+      .unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    CursorPage<PostResponse> page = postService.getAllPosts(PostSort.NEW, null, null, 10);
+
+    assertThat(page.getItems()).hasSize(5).allSatisfy(post -> {
+      assertThat(post.getUserName()).isEqualTo("alice");
+      assertThat(post.getSubredditName()).isEqualTo("/r/java");
+      assertThat(post.getCommentCount()).isEqualTo(0);
+    });
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+  }
+}
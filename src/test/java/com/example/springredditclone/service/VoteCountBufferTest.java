@@ -0,0 +1,148 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.model.PendingVoteDelta;
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.Subreddit;
+import com.example.springredditclone.model.User;
+import com.example.springredditclone.repository.PendingVoteDeltaRepository;
+import com.example.springredditclone.repository.PostRepository;
+import com.example.springredditclone.repository.SubredditRepository;
+import com.example.springredditclone.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Flushes real pending_vote_delta rows into real post rows. The test transaction is turned off so that every flush
+ * batch commits on its own, as it does when scheduled.
+ * */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(VoteCountBuffer.class)
+public class VoteCountBufferTest {
+
+  @Autowired
+  private VoteCountBuffer voteCountBuffer;
+  @Autowired
+  private PendingVoteDeltaRepository pendingVoteDeltaRepository;
+  @Autowired
+  private PostRepository postRepository;
+  @Autowired
+  private SubredditRepository subredditRepository;
+  @Autowired
+  private UserRepository userRepository;
+  @SpyBean
+  private JdbcTemplate jdbcTemplate;
+
+  private Post first;
+  private Post second;
+  private Post third;
+
+  @Before
+  public void setUp() {
+    User user = userRepository.save(user("alice"));
+    Subreddit subreddit = subredditRepository.save(subreddit("/r/java", user));
+    first = postRepository.save(post("first", user, subreddit));
+    second = postRepository.save(post("second", user, subreddit));
+    third = postRepository.save(post("third", user, subreddit));
+  }
+
+  @After
+  public void clearTables() {
+    pendingVoteDeltaRepository.deleteAll();
+    postRepository.deleteAll();
+    subredditRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  public void deltasAreSummedPerPostAndRemoved() {
+    queue(first, 1, 1, -1, 2);
+    queue(second, -1, -2);
+
+    voteCountBuffer.flush();
+
+    assertThat(voteCount(first)).isEqualTo(3);
+    assertThat(voteCount(second)).isEqualTo(-3);
+    assertThat(voteCount(third)).isZero();
+    assertThat(pendingVoteDeltaRepository.count()).isZero();
+  }
+
+  @Test
+  public void postsWhoseDeltasCancelOutAreNotUpdated() {
+    queue(first, 1);
+    queue(second, 1, -2, 1);
+
+    voteCountBuffer.flush();
+
+    List<Object[]> updates = flushedUpdates(1).get(0);
+    assertThat(updates).hasSize(1);
+    assertThat(updates.get(0)).containsExactly(1L, first.getPostId());
+    assertThat(voteCount(second)).isZero();
+    assertThat(pendingVoteDeltaRepository.count()).isZero();
+  }
+
+  @Test
+  public void fullBatchesAreFollowedByAnotherBatch() {
+    // One full batch plus a few rows: the second batch claims and deletes exactly the rows the first one left
+    List<PendingVoteDelta> deltas = new ArrayList<>();
+    for (int i = 0; i < VoteCountBuffer.BATCH_SIZE + 5; i++) {
+      Long postId = i % 2 == 0 ? first.getPostId() : third.getPostId();
+      deltas.add(PendingVoteDelta.builder().postId(postId).delta(1).build());
+    }
+    pendingVoteDeltaRepository.saveAll(deltas);
+
+    voteCountBuffer.flush();
+
+    flushedUpdates(2);
+    assertThat(voteCount(first) + voteCount(third)).isEqualTo(VoteCountBuffer.BATCH_SIZE + 5);
+    assertThat(voteCount(first)).isEqualTo((VoteCountBuffer.BATCH_SIZE + 6) / 2);
+    assertThat(pendingVoteDeltaRepository.count()).isZero();
+  }
+
+  @Test
+  public void emptyBufferRunsNoUpdate() {
+    voteCountBuffer.flush();
+
+    flushedUpdates(0);
+  }
+
+  private void queue(Post post, int... deltas) {
+    for (int delta : deltas) {
+      pendingVoteDeltaRepository.save(PendingVoteDelta.builder().postId(post.getPostId()).delta(delta).build());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<List<Object[]>> flushedUpdates(int batches) {
+    ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(batches)).batchUpdate(anyString(), updates.capture());
+    return updates.getAllValues();
+  }
+
+  private int voteCount(Post post) {
+    return postRepository.findById(post.getPostId()).orElseThrow(AssertionError::new).getVoteCount();
+  }
+}
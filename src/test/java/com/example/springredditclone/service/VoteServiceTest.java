@@ -0,0 +1,106 @@
+package com.example.springredditclone.service;
+
+import com.example.springredditclone.dto.VoteDto;
+import com.example.springredditclone.exception.SpringRedditException;
+import com.example.springredditclone.model.PendingVoteDelta;
+import com.example.springredditclone.model.Post;
+import com.example.springredditclone.model.User;
+import com.example.springredditclone.model.Vote;
+import com.example.springredditclone.repository.PendingVoteDeltaRepository;
+import com.example.springredditclone.repository.VoteRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static com.example.springredditclone.TestEntities.post;
+import static com.example.springredditclone.TestEntities.subreddit;
+import static com.example.springredditclone.TestEntities.user;
+import static com.example.springredditclone.model.VoteType.DOWNVOTE;
+import static com.example.springredditclone.model.VoteType.UPVOTE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * The test transaction never commits, so VoteStateCache never hears about these votes. That is the view of an
+ * instance the votes did not go through, and the cache is filled by hand where the test needs it to be stale.
+ * */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({VoteService.class, VoteStateCache.class, VoteCountBuffer.class})
+public class VoteServiceTest {
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private VoteService voteService;
+  @Autowired
+  private VoteStateCache voteStateCache;
+  @Autowired
+  private VoteRepository voteRepository;
+  @Autowired
+  private PendingVoteDeltaRepository pendingVoteDeltaRepository;
+  @MockBean
+  private AuthService authService;
+
+  private User user;
+  private Post post;
+
+  @Before
+  public void setUp() {
+    user = entityManager.persist(user("alice"));
+    post = entityManager.persist(post("post", user, entityManager.persist(subreddit("/r/java", user))));
+    given(authService.getCurrentUserId()).willReturn(user.getUserId());
+    given(authService.getCurrentUser()).willReturn(user);
+  }
+
+  @Test
+  public void voteFlipAndRevoteAreCountedOnce() {
+    voteService.vote(new VoteDto(UPVOTE, post.getPostId()));
+    // This instance saw the upvote, but the flip below goes through another one
+    voteStateCache.put(user.getUserId(), post.getPostId(), UPVOTE);
+    voteService.vote(new VoteDto(DOWNVOTE, post.getPostId()));
+    voteStateCache.put(user.getUserId(), post.getPostId(), UPVOTE);
+
+    voteService.vote(new VoteDto(UPVOTE, post.getPostId()));
+
+    assertThat(vote().getVoteType()).isEqualTo(UPVOTE);
+    assertThat(pendingVoteDeltaRepository.findAll(Sort.by("id")))
+      .extracting(PendingVoteDelta::getDelta)
+      .containsExactly(1, -2, 2);
+  }
+
+  @Test
+  public void staleCachedVoteDoesNotRejectAVote() {
+    entityManager.persist(Vote.builder().post(post).user(user).voteType(DOWNVOTE).build());
+    voteStateCache.put(user.getUserId(), post.getPostId(), UPVOTE);
+
+    voteService.vote(new VoteDto(UPVOTE, post.getPostId()));
+
+    assertThat(vote().getVoteType()).isEqualTo(UPVOTE);
+    assertThat(pendingVoteDeltaRepository.findAll()).extracting(PendingVoteDelta::getDelta).containsExactly(2);
+  }
+
+  @Test
+  public void repeatedVoteIsRejectedFromTheVoteRow() {
+    entityManager.persist(Vote.builder().post(post).user(user).voteType(UPVOTE).build());
+
+    assertThatThrownBy(() -> voteService.vote(new VoteDto(UPVOTE, post.getPostId())))
+      .isInstanceOf(SpringRedditException.class)
+      .hasMessageContaining("already UPVOTE'd");
+    assertThat(pendingVoteDeltaRepository.findAll()).isEmpty();
+    // The rejection also corrects this instance's cache
+    assertThat(voteStateCache.get(user.getUserId(), post.getPostId())).isEqualTo((byte) 1);
+  }
+
+  private Vote vote() {
+    return voteRepository.findByPostAndUser(post, user).orElseThrow(AssertionError::new);
+  }
+}